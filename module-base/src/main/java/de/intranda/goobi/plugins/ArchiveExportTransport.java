@@ -0,0 +1,368 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import de.sub.goobi.helper.StorageProviderInterface;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Export of all files into one ZIP or TAR archive, which is streamed through another transport into the target folder.
+ *
+ * Nothing is staged on the local disk, the entries are read from the source and written straight into the archive. The archive is written from
+ * scratch by every export and only complete once {@link #finish()} has been called, an archive that was not finished is deleted on close.
+ * Since all entries go into one stream, files must be exported one after another, and an entry that failed halfway leaves the archive unusable.
+ */
+@Log4j2
+public class ArchiveExportTransport implements ExportTransport {
+
+    public static final String FORMAT_NONE = "none";
+    public static final String FORMAT_ZIP = "zip";
+    public static final String FORMAT_TAR = "tar";
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final int TAR_BLOCK_SIZE = 512;
+    // largest size that fits into the 11 octal digits of a ustar header
+    private static final long TAR_MAX_SIZE = 077777777777L;
+
+    // file types that are compressed already, deflating them once more costs time without saving space
+    private static final Set<String> COMPRESSED_FILE_TYPES =
+            new HashSet<>(Arrays.asList("jpg", "jpeg", "jp2", "jpx", "png", "gif", "webp", "pdf", "mp3", "mp4", "zip"));
+
+    private final StorageProviderInterface storageProvider;
+    private final ExportTransport target;
+    private final Path archivePath;
+    private final String format;
+    private final int compressionLevel;
+    private final boolean storeCompressedFiles;
+
+    private OutputStream out;
+    private ZipOutputStream zip;
+    // true while a stream returned by writeFile is still open
+    private boolean entryOpen;
+    // true once an entry failed halfway, since the archive cannot be repaired afterwards
+    private boolean broken;
+    private boolean finished;
+
+    /**
+     * constructor
+     *
+     * @param storageProvider StorageProvider used to read the source files
+     * @param target ExportTransport that receives the archive, it is closed together with this transport
+     * @param archivePath path to the archive in the target folder, all entries are named relative to its folder
+     * @param format zip | tar
+     * @param compressionLevel 0 to 9, only used for ZIP archives
+     * @param storeCompressedFiles whether or not files that are compressed already are stored in ZIP archives without deflating them
+     */
+    public ArchiveExportTransport(StorageProviderInterface storageProvider, ExportTransport target, Path archivePath, String format,
+            int compressionLevel, boolean storeCompressedFiles) {
+        if (!FORMAT_ZIP.equals(format) && !FORMAT_TAR.equals(format)) {
+            throw new IllegalArgumentException("Unknown archive format '" + format + "', please use one of none, zip or tar.");
+        }
+        this.storageProvider = storageProvider;
+        this.target = target;
+        this.archivePath = archivePath;
+        this.format = format;
+        this.compressionLevel = Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, compressionLevel));
+        this.storeCompressedFiles = storeCompressedFiles;
+    }
+
+    @Override
+    public void createFolders(Path folder) throws IOException {
+        // the archive itself is placed into the target folder, which must exist
+        target.createFolders(folder);
+    }
+
+    @Override
+    public synchronized void exportFile(Path source, Path targetPath) throws IOException {
+        checkWritable();
+        String name = getEntryName(targetPath);
+        long size = storageProvider.getFileSize(source);
+
+        broken = true;
+        if (FORMAT_ZIP.equals(format)) {
+            ZipEntry entry = new ZipEntry(name);
+            if (storeCompressedFiles && isCompressed(name)) {
+                // stored entries must announce their checksum in advance, hence the source is read twice
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(getChecksum(source));
+            }
+            getZip().putNextEntry(entry);
+            copy(source, zip);
+            zip.closeEntry();
+        } else {
+            writeTarHeader(name, size);
+            if (copy(source, getOut()) != size) {
+                throw new IOException("The size of " + source + " changed while it was added to the archive.");
+            }
+            padTarBlock(size);
+        }
+        broken = false;
+    }
+
+    @Override
+    public long getFileSize(Path targetPath) {
+        // the archive is written from scratch, hence none of its entries exists yet
+        return -1;
+    }
+
+    @Override
+    public InputStream readFile(Path targetPath) throws IOException {
+        throw new IOException("Files cannot be read back from the archive " + archivePath + ".");
+    }
+
+    @Override
+    public synchronized OutputStream writeFile(Path targetPath) throws IOException {
+        checkWritable();
+        String name = getEntryName(targetPath);
+        entryOpen = true;
+
+        if (FORMAT_ZIP.equals(format)) {
+            broken = true;
+            getZip().putNextEntry(new ZipEntry(name));
+            return new FilterOutputStream(zip) {
+                private boolean closed;
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // the entry is closed, but not the archive, and only once, since wrapping writers close it as well
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    synchronized (ArchiveExportTransport.this) {
+                        zip.closeEntry();
+                        entryOpen = false;
+                        broken = false;
+                    }
+                }
+            };
+        }
+
+        // the header of a TAR entry contains its size, hence the content is collected in memory first
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                // a second close would write the entry twice
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                synchronized (ArchiveExportTransport.this) {
+                    entryOpen = false;
+                    broken = true;
+                    writeTarHeader(name, size());
+                    writeTo(getOut());
+                    padTarBlock(size());
+                    broken = false;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void deleteFile(Path targetPath) {
+        // entries are never replaced, since the archive is written from scratch
+    }
+
+    /**
+     * complete the archive, it is only usable after this call
+     *
+     * @throws IOException if the archive could not be completed
+     */
+    public synchronized void finish() throws IOException {
+        checkWritable();
+        if (FORMAT_ZIP.equals(format)) {
+            getZip().finish();
+        } else {
+            // a TAR archive ends with two empty blocks
+            getOut().write(new byte[2 * TAR_BLOCK_SIZE]);
+        }
+        out.close();
+        finished = true;
+        log.debug("finished the archive " + archivePath);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out != null && !finished) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Failed to close the archive " + archivePath + ": " + e.getMessage());
+            }
+            try {
+                target.deleteFile(archivePath);
+            } catch (IOException e) {
+                log.warn("Failed to delete the incomplete archive " + archivePath + ": " + e.getMessage());
+            }
+        }
+        target.close();
+    }
+
+    private void checkWritable() throws IOException {
+        if (finished) {
+            throw new IOException("The archive " + archivePath + " is finished already.");
+        }
+        if (broken || entryOpen) {
+            throw new IOException("The archive " + archivePath + " is incomplete, since a previous entry was not finished.");
+        }
+    }
+
+    /**
+     * get the stream into the archive file, it is opened with the first entry, i.e. after the target folder was created
+     *
+     * @return OutputStream into the archive file
+     * @throws IOException if the archive file could not be created
+     */
+    private OutputStream getOut() throws IOException {
+        if (out == null) {
+            out = new BufferedOutputStream(target.writeFile(archivePath), BUFFER_SIZE);
+        }
+        return out;
+    }
+
+    private ZipOutputStream getZip() throws IOException {
+        if (zip == null) {
+            zip = new ZipOutputStream(getOut());
+            zip.setLevel(compressionLevel);
+            out = zip;
+        }
+        return zip;
+    }
+
+    /**
+     * get the name of an entry, relative to the folder of the archive
+     *
+     * @param targetPath path to the file in the target folder
+     * @return name of the entry, using '/' as separator
+     */
+    private String getEntryName(Path targetPath) {
+        Path folder = archivePath.getParent();
+        Path relativePath = folder != null && targetPath.startsWith(folder) ? folder.relativize(targetPath) : targetPath.getFileName();
+        return relativePath.toString().replace('\\', '/');
+    }
+
+    private static boolean isCompressed(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_FILE_TYPES.contains(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * copy the content of a source file into the archive
+     *
+     * @param source path to the source file
+     * @param destination OutputStream of the archive
+     * @return number of bytes copied
+     * @throws IOException if the file could not be copied
+     */
+    private long copy(Path source, OutputStream destination) throws IOException {
+        try (InputStream in = storageProvider.newInputStream(source)) {
+            return in.transferTo(destination);
+        }
+    }
+
+    private long getChecksum(Path source) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = storageProvider.newInputStream(source)) {
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * write the ustar header of an entry
+     *
+     * @param name name of the entry
+     * @param size size of the entry in bytes
+     * @throws IOException if the name or the size do not fit into the header, or if the header could not be written
+     */
+    private void writeTarHeader(String name, long size) throws IOException {
+        if (size > TAR_MAX_SIZE) {
+            throw new IOException("The file " + name + " is too large for a TAR archive.");
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] prefixBytes = new byte[0];
+        if (nameBytes.length > 100) {
+            // longer names are split at a '/' into a prefix of up to 155 bytes and a name of up to 100 bytes
+            int split = name.lastIndexOf('/');
+            prefixBytes = split > 0 ? name.substring(0, split).getBytes(StandardCharsets.UTF_8) : nameBytes;
+            nameBytes = split > 0 ? name.substring(split + 1).getBytes(StandardCharsets.UTF_8) : nameBytes;
+            if (nameBytes.length > 100 || prefixBytes.length > 155) {
+                throw new IOException("The name " + name + " is too long for a TAR archive.");
+            }
+        }
+
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, size);
+        putOctal(header, 136, 12, System.currentTimeMillis() / 1000);
+        // the checksum is computed with its own field filled with spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = '0';
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        System.arraycopy(prefixBytes, 0, header, 345, prefixBytes.length);
+
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        putOctal(header, 148, 7, checksum);
+        getOut().write(header);
+    }
+
+    /**
+     * write a number as zero padded octal digits followed by a NUL byte
+     */
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int width = length - 1;
+        for (int i = 0; i < width; i++) {
+            int index = digits.length() - width + i;
+            header[offset + i] = (byte) (index < 0 ? '0' : digits.charAt(index));
+        }
+        header[offset + width] = 0;
+    }
+
+    /**
+     * fill the last block of an entry with zeros
+     *
+     * @param size size of the entry in bytes
+     * @throws IOException if the padding could not be written
+     */
+    private void padTarBlock(long size) throws IOException {
+        int remainder = (int) (size % TAR_BLOCK_SIZE);
+        if (remainder > 0) {
+            getOut().write(new byte[TAR_BLOCK_SIZE - remainder]);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Journal of the images that were completely exported by an unfinished export run, stored in the process data directory.
+ *
+ * Every image is appended as one line 'size&lt;TAB&gt;name' as soon as its transfer has finished, so that an export that was aborted can be
+ * continued by the next run. The first line names the target, a journal of another target is discarded. Images that were only partly written
+ * are never listed, and a line that was cut off by a crash is ignored.
+ */
+@Log4j2
+public class ExportCheckpoint implements AutoCloseable {
+
+    public static final String FILE_NAME = "selected_images_export.checkpoint";
+
+    private static final String HEADER_PREFIX = "target=";
+
+    private final Path file;
+    private final Map<String, Long> completedImages = new HashMap<>();
+    private Writer writer;
+
+    private ExportCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * open the journal, continuing it if it belongs to the same target
+     *
+     * @param file path to the journal in the process data directory
+     * @param targetKey key of the target folder, including the host it belongs to
+     * @return ExportCheckpoint object that must be closed
+     * @throws IOException if the journal could not be read or created
+     */
+    public static ExportCheckpoint open(Path file, String targetKey) throws IOException {
+        ExportCheckpoint checkpoint = new ExportCheckpoint(file);
+        String header = HEADER_PREFIX + targetKey;
+
+        boolean continued = Files.exists(file) && checkpoint.read(header);
+        if (continued) {
+            log.debug("continuing the export with " + checkpoint.completedImages.size() + " images already done");
+            checkpoint.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } else {
+            checkpoint.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            checkpoint.writer.write(header + "\n");
+            checkpoint.writer.flush();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * read all complete lines of an existing journal
+     *
+     * @param header expected first line
+     * @return true if the journal belongs to the same target, false otherwise
+     * @throws IOException if the journal could not be read
+     */
+    private boolean read(String header) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!header.equals(reader.readLine())) {
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    completedImages.put(line.substring(tab + 1), Long.parseLong(line.substring(0, tab)));
+                } catch (NumberFormatException e) {
+                    // cut off line, the image will simply be exported again
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * get the size that an image had when it was exported
+     *
+     * @param name file name of the image
+     * @return size in bytes, or null if the image was not completely exported yet
+     */
+    public synchronized Long getCompletedSize(String name) {
+        return completedImages.get(name);
+    }
+
+    /**
+     * record an image whose transfer has finished
+     *
+     * @param name file name of the image
+     * @param size size of the image in bytes
+     * @throws IOException if the journal could not be written
+     */
+    public synchronized void add(String name, long size) throws IOException {
+        completedImages.put(name, size);
+        writer.write(size + "\t" + name + "\n");
+        // every line must reach the disk, since the next run depends on it after a crash
+        writer.flush();
+    }
+
+    /**
+     * close the journal, it stays in place for the next run
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close " + file + ": " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    /**
+     * close and delete the journal, since the export has finished
+     *
+     * @throws IOException if the journal could not be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,171 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
+
+import de.sub.goobi.config.ConfigPlugins;
+import de.sub.goobi.config.ConfigurationHelper;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Immutable snapshot of the configuration block that applies to one project, with all defaults already applied.
+ *
+ * Snapshots are cached per project and resolved via XPath only once. The whole cache is dropped as soon as the modification time of the
+ * configuration file changes. Goobi variables are not replaced here, since their values depend on the process.
+ */
+@Log4j2
+@Getter
+public class ExportConfiguration {
+
+    // cached snapshots of one version of the configuration file
+    private static volatile Cache cache;
+
+    private final boolean exportMetsFile;
+    private final String metsFilter;
+    private final boolean createSubfolders;
+    private final String propertyName;
+    private final String sourceFolder;
+    private final String imageLookup;
+    private final String targetFolder;
+    private final int parallelTransfers;
+    private final boolean incrementalExport;
+    private final boolean deleteDeselectedImages;
+    private final boolean resumableExport;
+    private final boolean continueOnError;
+    private final int retries;
+    private final long retryDelay;
+    private final boolean exportSelectionFile;
+    private final String archiveFormat;
+    private final String archiveName;
+    private final int archiveCompressionLevel;
+    private final boolean archiveStoreCompressedImages;
+    private final String transport;
+    private final String localExportMode;
+    private final String knownHosts;
+    private final String scpLogin;
+    private final String scpPassword;
+    private final String scpHostname;
+    private final boolean scpBatchTransfer;
+    private final int scpBufferSize;
+    private final int sftpBulkRequests;
+
+    /**
+     * constructor
+     *
+     * @param config the config block of one project
+     */
+    ExportConfiguration(HierarchicalConfiguration config) {
+        exportMetsFile = config.getBoolean("./exportMetsFile", false);
+        metsFilter = config.getString("./metsFilter", SelectedImagesExportPlugin.METS_FILTER_UGH).trim().toLowerCase();
+        createSubfolders = config.getBoolean("./createSubfolders", false);
+        propertyName = config.getString("./propertyName", "").trim();
+        sourceFolder = config.getString("./sourceFolder", "").trim();
+        imageLookup = config.getString("./imageLookup", SelectedImagesExportPlugin.IMAGE_LOOKUP_LISTING).trim().toLowerCase();
+        targetFolder = config.getString("targetFolder", "").trim();
+        parallelTransfers = Math.max(1, config.getInt("./parallelTransfers", 1));
+        incrementalExport = config.getBoolean("./incrementalExport", false);
+        deleteDeselectedImages = config.getBoolean("./deleteDeselectedImages", false);
+        resumableExport = config.getBoolean("./resumableExport", false);
+        continueOnError = config.getBoolean("./continueOnError", false);
+        retries = Math.max(0, config.getInt("./retries", 0));
+        retryDelay = Math.max(0, config.getLong("./retryDelay", 1000));
+        exportSelectionFile = config.getBoolean("./exportSelectionFile", false);
+        archiveFormat = config.getString("./archiveFormat", ArchiveExportTransport.FORMAT_NONE).trim().toLowerCase();
+        archiveName = config.getString("./archiveName", "").trim();
+        archiveCompressionLevel = Math.max(0, Math.min(9, config.getInt("./archiveCompressionLevel", 6)));
+        archiveStoreCompressedImages = config.getBoolean("./archiveStoreCompressedImages", true);
+
+        boolean useScp = config.getBoolean("./useScp", false);
+        String defaultTransport = useScp ? SelectedImagesExportPlugin.TRANSPORT_SCP : SelectedImagesExportPlugin.TRANSPORT_LOCAL;
+        transport = config.getString("./transport", defaultTransport).trim().toLowerCase();
+        localExportMode = config.getString("./localExportMode", LocalExportTransport.MODE_COPY).trim().toLowerCase();
+        knownHosts = config.getString("knownHosts", "").trim();
+        scpLogin = config.getString("./scpLogin", "");
+        scpPassword = config.getString("./scpPassword", "");
+        scpHostname = config.getString("./scpHostname", "").trim();
+        scpBatchTransfer = config.getBoolean("./scpBatchTransfer", false);
+        scpBufferSize = Math.max(1024, config.getInt("./scpBufferSize", 262144));
+        sftpBulkRequests = Math.max(1, config.getInt("./sftpBulkRequests", 16));
+    }
+
+    /**
+     * get the configuration that applies to a project
+     *
+     * @param pluginTitle title of the plugin, which determines the name of the configuration file
+     * @param projectName name of the project
+     * @return ExportConfiguration of the project, or of the config block for all projects '*' if there is none for this project
+     */
+    public static ExportConfiguration getInstance(String pluginTitle, String projectName) {
+        long lastModified = getLastModified(pluginTitle);
+
+        Cache current = cache;
+        if (current == null || !current.pluginTitle.equals(pluginTitle) || current.lastModified != lastModified) {
+            log.debug("loading the configuration of " + pluginTitle);
+            XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(pluginTitle);
+            xmlConfig.setExpressionEngine(new XPathExpressionEngine());
+            current = new Cache(pluginTitle, lastModified, xmlConfig);
+            cache = current;
+        }
+
+        return current.get(projectName);
+    }
+
+    /**
+     * get the modification time of the configuration file
+     *
+     * @param pluginTitle title of the plugin
+     * @return modification time in milliseconds, or -1 if it cannot be determined
+     */
+    private static long getLastModified(String pluginTitle) {
+        Path configFile = Paths.get(ConfigurationHelper.getInstance().getConfigurationFolder(), "plugin_" + pluginTitle + ".xml");
+        try {
+            return Files.getLastModifiedTime(configFile).toMillis();
+        } catch (IOException e) {
+            log.warn("Cannot determine the modification time of " + configFile + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * one version of the configuration file together with the snapshots that were resolved from it
+     */
+    private static class Cache {
+        private final String pluginTitle;
+        private final long lastModified;
+        private final XMLConfiguration xmlConfig;
+        private final Map<String, ExportConfiguration> projects = new ConcurrentHashMap<>();
+
+        private Cache(String pluginTitle, long lastModified, XMLConfiguration xmlConfig) {
+            this.pluginTitle = pluginTitle;
+            this.lastModified = lastModified;
+            this.xmlConfig = xmlConfig;
+        }
+
+        private ExportConfiguration get(String projectName) {
+            return projects.computeIfAbsent(projectName, this::resolve);
+        }
+
+        private ExportConfiguration resolve(String projectName) {
+            log.debug("resolving the configuration of project " + projectName);
+            // order of configuration is:
+            // 1.) project name matches
+            // 2.) project is *
+            synchronized (xmlConfig) {
+                try {
+                    return new ExportConfiguration(xmlConfig.configurationAt("//config[./project = '" + projectName + "']"));
+                } catch (IllegalArgumentException e) {
+                    return new ExportConfiguration(xmlConfig.configurationAt("//config[./project = '*']"));
+                }
+            }
+        }
+    }
+}
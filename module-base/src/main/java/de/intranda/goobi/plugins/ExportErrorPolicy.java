@@ -0,0 +1,108 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * How an export deals with files that cannot be exported.
+ *
+ * Every file is tried again with an exponential backoff, so that a short outage of the storage or the network is bridged. A file that still
+ * fails either stops the export, i.e. no further file is started, or the export carries on with the remaining files.
+ */
+@Getter
+public class ExportErrorPolicy {
+
+    // upper limit of the delay between two attempts to export a file
+    public static final long MAX_RETRY_DELAY = 60000;
+
+    // number of further attempts to export a file after it failed
+    private final int retries;
+    // delay in milliseconds before the first retry, which is doubled for every further retry
+    private final long retryDelay;
+    // whether or not to carry on with the remaining files after a file could not be exported
+    private final boolean continueOnError;
+
+    /**
+     * a single attempt to export a file
+     */
+    public interface Attempt {
+        void run() throws IOException;
+    }
+
+    /**
+     * notified before every retry
+     */
+    public interface RetryListener {
+        void beforeRetry(int attempt, long delay, IOException e);
+    }
+
+    /**
+     * constructor
+     *
+     * @param retries number of further attempts to export a file after it failed, negative values count as 0
+     * @param retryDelay delay in milliseconds before the first retry
+     * @param continueOnError whether or not to carry on with the remaining files after a file could not be exported
+     */
+    public ExportErrorPolicy(int retries, long retryDelay, boolean continueOnError) {
+        this.retries = Math.max(0, retries);
+        this.retryDelay = Math.max(0, retryDelay);
+        this.continueOnError = continueOnError;
+    }
+
+    /**
+     * run an attempt until it succeeds or no retry is left
+     *
+     * @param attempt Attempt that exports the file
+     * @param listener RetryListener that is notified before every retry
+     * @throws IOException the exception of the last attempt, if no attempt succeeded
+     * @throws InterruptedException if the thread was interrupted while waiting for the next attempt
+     */
+    public void run(Attempt attempt, RetryListener listener) throws IOException, InterruptedException {
+        for (int i = 0;; i++) {
+            try {
+                attempt.run();
+                return;
+
+            } catch (IOException e) {
+                if (i >= retries) {
+                    throw e;
+                }
+                long delay = getDelay(i);
+                listener.beforeRetry(i, delay, e);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * get the delay before the retry that follows a failed attempt
+     *
+     * @param attempt number of the failed attempt, starting with 0
+     * @return delay in milliseconds, at most MAX_RETRY_DELAY
+     */
+    public long getDelay(int attempt) {
+        // the limit is checked before shifting, so that neither many attempts nor a large delay can overflow
+        int shift = Math.min(attempt, 62);
+        return retryDelay > MAX_RETRY_DELAY >> shift ? MAX_RETRY_DELAY : retryDelay << shift;
+    }
+
+    /**
+     * check whether further files should be started
+     *
+     * @param failed whether or not a file of the export could not be exported
+     * @return true if no further file should be started, false otherwise
+     */
+    public boolean isStopped(boolean failed) {
+        return failed && !continueOnError;
+    }
+
+    /**
+     * get the number of attempts after which a file is given up
+     *
+     * @return retries + 1
+     */
+    public int getAttempts() {
+        return retries + 1;
+    }
+}
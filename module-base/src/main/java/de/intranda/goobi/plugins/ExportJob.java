@@ -0,0 +1,149 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.goobi.beans.Process;
+
+import lombok.Getter;
+
+/**
+ * Export of one process that runs in the background.
+ *
+ * Jobs are queued and executed by a small pool of threads shared by all plugin instances, so that large exports do not hold the threads of
+ * Goobi for their whole duration. The outcome of every job is written into the journal of its process. Idle threads end after a minute, and
+ * {@link #shutdown()} stops the pool at once.
+ */
+public class ExportJob {
+
+    // number of jobs that run at the same time, all further jobs wait in the queue
+    private static final int EXPORT_JOB_THREADS = 2;
+
+    // seconds after which an idle thread ends, so that no thread keeps an unloaded plugin in memory
+    private static final long IDLE_SECONDS = 60;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    // created with the first job and again after a shutdown
+    private static ThreadPoolExecutor executor;
+
+    @Getter
+    private final int processId;
+    private final SelectedImagesExportPlugin plugin;
+    private Future<Boolean> future;
+
+    private ExportJob(int processId, SelectedImagesExportPlugin plugin) {
+        this.processId = processId;
+        this.plugin = plugin;
+    }
+
+    /**
+     * queue the export of a process
+     *
+     * @param plugin plugin instance that is used for this job only
+     * @param process Goobi process
+     * @return the queued ExportJob
+     */
+    static ExportJob submit(SelectedImagesExportPlugin plugin, Process process) {
+        ExportJob job = new ExportJob(process.getId(), plugin);
+        job.future = getExecutor().submit(() -> plugin.runExportJob(process));
+        return job;
+    }
+
+    /**
+     * get the pool of threads that run the jobs, creating it if necessary
+     *
+     * @return ThreadPoolExecutor object
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null || executor.isShutdown()) {
+            executor = new ThreadPoolExecutor(EXPORT_JOB_THREADS, EXPORT_JOB_THREADS, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "selected-images-export-" + THREAD_COUNTER.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * stop accepting jobs and interrupt the running ones, e.g. before the plugin is unloaded. Jobs submitted afterwards get a new pool.
+     *
+     * @return the jobs that were still waiting in the queue and will not run
+     */
+    public static synchronized List<Runnable> shutdown() {
+        if (executor == null) {
+            return Collections.emptyList();
+        }
+        List<Runnable> waitingJobs = executor.shutdownNow();
+        executor = null;
+        return waitingJobs;
+    }
+
+    /**
+     * get the progress of the image transfer
+     *
+     * @return ExportProgress object, which is empty as long as the job is still waiting in the queue
+     */
+    public ExportProgress getProgress() {
+        ExportProgress progress = plugin.getProgress();
+        return progress == null ? new ExportProgress() : progress;
+    }
+
+    /**
+     * check whether the job has finished, no matter whether it succeeded
+     *
+     * @return true if the job has finished or was cancelled, false otherwise
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * cancel the job, a running transfer is interrupted
+     *
+     * @return false if the job could not be cancelled, typically because it has already finished
+     */
+    public boolean cancel() {
+        return future.cancel(true);
+    }
+
+    /**
+     * wait until the job has finished
+     *
+     * @return true if the export succeeded, false otherwise
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public boolean waitForResult() throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * get the problems that were reported so far
+     *
+     * @return a copy of the list of problems, empty if there were none
+     */
+    public List<String> getProblems() {
+        List<String> problems = plugin.getProblems();
+        if (problems == null) {
+            return Collections.emptyList();
+        }
+        synchronized (problems) {
+            return new ArrayList<>(problems);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.goobi.production.enums.LogType;
+
+import de.sub.goobi.helper.Helper;
+
+/**
+ * Buffer for the process journal entries of one export run.
+ *
+ * Every journal entry is a database transaction of its own, and an export that continues past failing images may produce hundreds of
+ * messages. Buffered messages are therefore written as at most one entry per log type, each listing a bounded number of messages, followed by
+ * at most one summary entry, which combines all parts added to the summary. Critical messages are written at once, after everything that was
+ * buffered before them.
+ */
+public class ExportJournal {
+
+    // number of messages that are listed in one journal entry, all others are only counted
+    private static final int MAX_MESSAGES_PER_ENTRY = 20;
+
+    private final int processId;
+    private final String prefix;
+
+    // buffered messages, which are written in the order of the log types, i.e. errors first
+    private final Map<LogType, List<String>> messages = new EnumMap<>(LogType.class);
+    private final Map<LogType, Integer> omittedMessages = new EnumMap<>(LogType.class);
+
+    // parts of the summary entry and its log type, which is an error as soon as one part is
+    private final List<String> summary = new ArrayList<>();
+    private LogType summaryType;
+
+    /**
+     * constructor
+     *
+     * @param processId id of the Goobi process
+     * @param prefix text that starts every journal entry
+     */
+    public ExportJournal(int processId, String prefix) {
+        this.processId = processId;
+        this.prefix = prefix;
+    }
+
+    /**
+     * buffer a message until the next flush
+     *
+     * @param logType type of the message
+     * @param message message without prefix
+     */
+    public synchronized void add(LogType logType, String message) {
+        List<String> list = messages.computeIfAbsent(logType, k -> new ArrayList<>());
+        if (list.size() < MAX_MESSAGES_PER_ENTRY) {
+            list.add(message);
+        } else {
+            omittedMessages.merge(logType, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * write a message at once, after all messages that were buffered so far
+     *
+     * @param logType type of the message
+     * @param message message without prefix
+     */
+    public synchronized void addCritical(LogType logType, String message) {
+        flush();
+        write(logType, message);
+    }
+
+    /**
+     * add a part to the summary entry, which is written by finish
+     *
+     * @param logType type of the part, the summary is an error as soon as one part is
+     * @param part part of the summary without prefix
+     */
+    public synchronized void addSummary(LogType logType, String part) {
+        summary.add(part);
+        if (summaryType == null || logType == LogType.ERROR) {
+            summaryType = logType;
+        }
+    }
+
+    /**
+     * write all buffered messages followed by the summary, if any part was added to it
+     */
+    public synchronized void finish() {
+        flush();
+        if (!summary.isEmpty()) {
+            write(summaryType, String.join(" ", summary));
+            summary.clear();
+            summaryType = null;
+        }
+    }
+
+    /**
+     * write all buffered messages, as one journal entry per log type
+     */
+    public synchronized void flush() {
+        for (Map.Entry<LogType, List<String>> entry : messages.entrySet()) {
+            StringBuilder sb = new StringBuilder(String.join(" ", entry.getValue()));
+            Integer omitted = omittedMessages.get(entry.getKey());
+            if (omitted != null) {
+                sb.append(" (").append(omitted).append(" further messages can be found in the log file.)");
+            }
+            write(entry.getKey(), sb.toString());
+        }
+        messages.clear();
+        omittedMessages.clear();
+    }
+
+    /**
+     * write one journal entry, package-private so that tests can capture the entries
+     *
+     * @param logType type of the entry
+     * @param message message without prefix
+     */
+    void write(LogType logType, String message) {
+        if (processId > 0) {
+            Helper.addMessageToProcessJournal(processId, logType, prefix + message);
+        }
+    }
+}
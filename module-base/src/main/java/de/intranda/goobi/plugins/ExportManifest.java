@@ -0,0 +1,128 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * List of the images that were exported into a target folder, stored as JSON next to them.
+ *
+ * The manifest lets an incremental export skip images that did not change since the last export, and find images that were deselected since then.
+ */
+public class ExportManifest {
+
+    public static final String FILE_NAME = "export_manifest.json";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    // entries sorted by file name, so that the written manifest does not depend on the order of the export
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * information about one exported image
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private String name;
+        private long size;
+        private long lastModified;
+    }
+
+    /**
+     * structure of the JSON file
+     */
+    private static class ManifestFile {
+        private List<Entry> files = new ArrayList<>();
+    }
+
+    /**
+     * read a manifest
+     *
+     * @param reader Reader providing the JSON content of the manifest
+     * @return ExportManifest object
+     * @throws IOException if the manifest could not be read or parsed
+     */
+    public static ExportManifest read(Reader reader) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        try {
+            ManifestFile file = GSON.fromJson(reader, ManifestFile.class);
+            if (file != null && file.files != null) {
+                for (Entry entry : file.files) {
+                    manifest.entries.put(entry.getName(), entry);
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new IOException("The manifest is not valid: " + e.getMessage(), e);
+        }
+        return manifest;
+    }
+
+    /**
+     * write the manifest as JSON
+     *
+     * @param writer Writer receiving the JSON content of the manifest
+     * @throws IOException if the manifest could not be written
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        ManifestFile file = new ManifestFile();
+        file.files.addAll(entries.values());
+        GSON.toJson(file, writer);
+        writer.flush();
+    }
+
+    /**
+     * check whether an image is listed with the same size and modification time
+     *
+     * @param name file name of the image
+     * @param size current size of the source file
+     * @param lastModified current modification time of the source file
+     * @return true if the image was exported before and did not change since then, false otherwise
+     */
+    public synchronized boolean isUnchanged(String name, long size, long lastModified) {
+        Entry entry = entries.get(name);
+        return entry != null && entry.getSize() == size && entry.getLastModified() == lastModified;
+    }
+
+    /**
+     * add or replace the entry of an image
+     *
+     * @param entry information about the exported image
+     */
+    public synchronized void put(Entry entry) {
+        entries.put(entry.getName(), entry);
+    }
+
+    /**
+     * remove the entry of an image
+     *
+     * @param name file name of the image
+     */
+    public synchronized void remove(String name) {
+        entries.remove(name);
+    }
+
+    /**
+     * get the names of all listed images
+     *
+     * @return a copy of the names of all listed images
+     */
+    public synchronized Set<String> getNames() {
+        return new TreeSet<>(entries.keySet());
+    }
+}
@@ -0,0 +1,141 @@
+package de.intranda.goobi.plugins;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timers and counters of one export run.
+ *
+ * The time of every phase is summed up separately, so that it can be told whether an export spends its time parsing metadata, looking up the
+ * images, connecting, transferring or generating the METS file.
+ */
+public class ExportMetrics {
+
+    public static final String PHASE_METADATA = "metadata";
+    public static final String PHASE_PROPERTY = "property";
+    public static final String PHASE_LOOKUP = "lookup";
+    public static final String PHASE_CONNECT = "connect";
+    // folders, manifest, checkpoint and sizes of the images, i.e. everything around the transfers
+    public static final String PHASE_BOOKKEEPING = "bookkeeping";
+    public static final String PHASE_IMAGES = "images";
+    public static final String PHASE_METS = "mets";
+
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+
+    private final long startTime = System.nanoTime();
+    private long endTime;
+
+    // nanoseconds spent in every phase, in the order in which the phases were entered
+    private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private volatile int files;
+    private volatile long bytes;
+    private volatile boolean success;
+
+    /**
+     * add the time since a start time to a phase
+     *
+     * @param phase name of the phase
+     * @param start value of System.nanoTime() at the start of the phase
+     */
+    public synchronized void addTime(String phase, long start) {
+        phaseTimes.merge(phase, System.nanoTime() - start, Long::sum);
+    }
+
+    /**
+     * count a retry of a file transfer
+     */
+    public void countRetry() {
+        retries.incrementAndGet();
+    }
+
+    /**
+     * count a file that finally could not be transferred
+     */
+    public void countFailedFile() {
+        failedFiles.incrementAndGet();
+    }
+
+    /**
+     * stop the overall timer and take over the transferred files and bytes
+     *
+     * @param progress progress of the image transfer
+     * @param success whether or not the export succeeded
+     */
+    public synchronized void finish(ExportProgress progress, boolean success) {
+        endTime = System.nanoTime();
+        files = progress.getFilesDone();
+        bytes = progress.getBytesDone();
+        this.success = success;
+    }
+
+    /**
+     * get the time spent in a phase
+     *
+     * @param phase name of the phase
+     * @return milliseconds, or 0 if the phase was not entered
+     */
+    public synchronized long getPhaseMillis(String phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseTimes.getOrDefault(phase, 0L));
+    }
+
+    /**
+     * get the time of the whole export run
+     *
+     * @return milliseconds from the start until the end, or until now if the run has not finished yet
+     */
+    public synchronized long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((endTime == 0 ? System.nanoTime() : endTime) - startTime);
+    }
+
+    public int getRetries() {
+        return retries.get();
+    }
+
+    public int getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * get the throughput of the image transfer phase
+     *
+     * @return bytes per second, or 0 if no time was spent transferring images
+     */
+    public double getThroughput() {
+        long millis = getPhaseMillis(PHASE_IMAGES);
+        return millis > 0 ? bytes * 1000d / millis : 0;
+    }
+
+    /**
+     * summarize the run in one line
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("files=").append(files);
+        sb.append(String.format(", bytes=%.1f MB, throughput=%.1f MB/s", bytes / BYTES_PER_MB, getThroughput() / BYTES_PER_MB));
+        sb.append(", retries=").append(retries.get());
+        sb.append(", failures=").append(failedFiles.get());
+        for (String phase : phaseTimes.keySet()) {
+            sb.append(", ").append(phase).append('=').append(getPhaseMillis(phase)).append(" ms");
+        }
+        sb.append(", total=").append(getTotalMillis()).append(" ms");
+        return sb.toString();
+    }
+}
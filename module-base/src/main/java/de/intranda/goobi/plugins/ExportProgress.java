@@ -0,0 +1,118 @@
+package de.intranda.goobi.plugins;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the image transfer of one export run, which may be read by other threads while the export is running.
+ */
+public class ExportProgress {
+
+    private static final double BYTES_PER_MB = 1024d * 1024d;
+
+    private volatile int totalFiles;
+    private volatile long totalBytes;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong bytesDone = new AtomicLong();
+
+    // System.nanoTime() when the transfer started, 0 if it has not started yet
+    private volatile long startTime;
+    // System.nanoTime() when the export finished, 0 if it is still running
+    private volatile long endTime;
+
+    /**
+     * start measuring the transfer
+     *
+     * @param files number of files that are going to be transferred
+     * @param bytes sum of the sizes of these files
+     */
+    void start(int files, long bytes) {
+        totalFiles = files;
+        totalBytes = bytes;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * count a file that was transferred
+     *
+     * @param bytes size of the file
+     */
+    void fileDone(long bytes) {
+        filesDone.incrementAndGet();
+        bytesDone.addAndGet(bytes);
+    }
+
+    /**
+     * mark the export as finished, no matter whether it succeeded
+     */
+    void finish() {
+        endTime = System.nanoTime();
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getFilesDone() {
+        return filesDone.get();
+    }
+
+    public long getBytesDone() {
+        return bytesDone.get();
+    }
+
+    public boolean isStarted() {
+        return startTime != 0;
+    }
+
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    /**
+     * get the average throughput since the start of the transfer
+     *
+     * @return bytes per second, or 0 if nothing was transferred yet
+     */
+    public double getThroughput() {
+        if (!isStarted()) {
+            return 0;
+        }
+        long end = isFinished() ? endTime : System.nanoTime();
+        double seconds = (end - startTime) / 1e9;
+        return seconds > 0 ? bytesDone.get() / seconds : 0;
+    }
+
+    /**
+     * estimate the remaining time of the transfer based on the throughput so far
+     *
+     * @return remaining seconds, 0 if the export is finished, or -1 if there is no estimate yet
+     */
+    public long getEstimatedSecondsRemaining() {
+        if (isFinished()) {
+            return 0;
+        }
+        double throughput = getThroughput();
+        if (throughput <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(Math.max(0, totalBytes - bytesDone.get()) / throughput);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getFilesDone()).append(" of ").append(totalFiles).append(" files, ");
+        sb.append(String.format("%.1f of %.1f MB, ", getBytesDone() / BYTES_PER_MB, totalBytes / BYTES_PER_MB));
+        sb.append(String.format("%.1f MB/s", getThroughput() / BYTES_PER_MB));
+        long remaining = getEstimatedSecondsRemaining();
+        if (!isFinished() && remaining >= 0) {
+            sb.append(", about ").append(remaining).append(" s remaining");
+        }
+        return sb.toString();
+    }
+}
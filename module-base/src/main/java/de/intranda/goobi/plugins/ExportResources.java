@@ -0,0 +1,68 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Resources that are shared by all exports of a batch, which may run concurrently.
+ *
+ * One ssh connection is kept per remote account, and folders that were created once are not created again by the following exports.
+ */
+@Log4j2
+public class ExportResources implements AutoCloseable {
+
+    // ssh connections keyed by login, host name and known_hosts file
+    private final Map<String, SshConnection> sshConnections = new ConcurrentHashMap<>();
+
+    // keys of all folders that were already created
+    private final Set<String> createdFolders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * get the ssh connection to a remote account, creating it if necessary
+     *
+     * @param hostname name or ip of the remote host
+     * @param login user name to login to the remote host
+     * @param password password to login to the remote host
+     * @param knownHosts path to the known_hosts file
+     * @return SshConnection object that must not be closed by the caller
+     */
+    public SshConnection getSshConnection(String hostname, String login, String password, String knownHosts) {
+        String key = login + "@" + hostname + " " + knownHosts;
+        return sshConnections.computeIfAbsent(key, k -> new SshConnection(hostname, login, password, knownHosts));
+    }
+
+    /**
+     * check whether a folder was already created during this batch
+     *
+     * @param folderKey key of the folder, including the host it belongs to
+     * @return true if the folder was already created, false otherwise
+     */
+    public boolean isFolderCreated(String folderKey) {
+        return createdFolders.contains(folderKey);
+    }
+
+    /**
+     * remember that a folder was created
+     *
+     * @param folderKey key of the folder, including the host it belongs to
+     */
+    public void addCreatedFolder(String folderKey) {
+        createdFolders.add(folderKey);
+    }
+
+    /**
+     * close all ssh connections
+     */
+    @Override
+    public void close() {
+        log.debug("closing " + sshConnections.size() + " shared ssh connections");
+        for (SshConnection connection : sshConnections.values()) {
+            connection.close();
+        }
+        sshConnections.clear();
+        createdFolders.clear();
+    }
+}
@@ -0,0 +1,173 @@
+package de.intranda.goobi.plugins;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Cumulative statistics of all exports since the start of the application, published via JMX as
+ * de.intranda.goobi.plugins:type=SelectedImagesExport.
+ */
+@Log4j2
+public class ExportStatistics implements ExportStatisticsMBean {
+
+    private static final String OBJECT_NAME = "de.intranda.goobi.plugins:type=SelectedImagesExport";
+
+    private static final ExportStatistics INSTANCE = register(new ExportStatistics());
+
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong failedExports = new AtomicLong();
+    private final AtomicLong filesExported = new AtomicLong();
+    private final AtomicLong bytesExported = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong metadataMillis = new AtomicLong();
+    private final AtomicLong propertyMillis = new AtomicLong();
+    private final AtomicLong lookupMillis = new AtomicLong();
+    private final AtomicLong connectMillis = new AtomicLong();
+    private final AtomicLong bookkeepingMillis = new AtomicLong();
+    private final AtomicLong imagesMillis = new AtomicLong();
+    private final AtomicLong metsMillis = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private volatile String lastSummary = "";
+
+    private ExportStatistics() {
+    }
+
+    /**
+     * register the statistics at the platform MBean server, the plugin works without them if this fails
+     *
+     * @param statistics ExportStatistics object
+     * @return the same ExportStatistics object
+     */
+    private static ExportStatistics register(ExportStatistics statistics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            // the plugin class may be loaded again, e.g. after a redeployment
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(statistics, name);
+        } catch (JMException | SecurityException e) {
+            log.warn("Cannot register the export statistics via JMX: " + e.getMessage());
+        }
+        return statistics;
+    }
+
+    public static ExportStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * add the metrics of a finished export run
+     *
+     * @param metrics ExportMetrics of the run
+     * @param summary one line summary of the run
+     */
+    public void record(ExportMetrics metrics, String summary) {
+        exports.incrementAndGet();
+        if (!metrics.isSuccess()) {
+            failedExports.incrementAndGet();
+        }
+        filesExported.addAndGet(metrics.getFiles());
+        bytesExported.addAndGet(metrics.getBytes());
+        retries.addAndGet(metrics.getRetries());
+        failedFiles.addAndGet(metrics.getFailedFiles());
+        metadataMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_METADATA));
+        propertyMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_PROPERTY));
+        lookupMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_LOOKUP));
+        connectMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_CONNECT));
+        bookkeepingMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_BOOKKEEPING));
+        imagesMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_IMAGES));
+        metsMillis.addAndGet(metrics.getPhaseMillis(ExportMetrics.PHASE_METS));
+        totalMillis.addAndGet(metrics.getTotalMillis());
+        lastSummary = summary;
+    }
+
+    @Override
+    public long getExports() {
+        return exports.get();
+    }
+
+    @Override
+    public long getFailedExports() {
+        return failedExports.get();
+    }
+
+    @Override
+    public long getFilesExported() {
+        return filesExported.get();
+    }
+
+    @Override
+    public long getBytesExported() {
+        return bytesExported.get();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    @Override
+    public long getFailedFiles() {
+        return failedFiles.get();
+    }
+
+    @Override
+    public long getMetadataMillis() {
+        return metadataMillis.get();
+    }
+
+    @Override
+    public long getPropertyMillis() {
+        return propertyMillis.get();
+    }
+
+    @Override
+    public long getLookupMillis() {
+        return lookupMillis.get();
+    }
+
+    @Override
+    public long getConnectMillis() {
+        return connectMillis.get();
+    }
+
+    @Override
+    public long getBookkeepingMillis() {
+        return bookkeepingMillis.get();
+    }
+
+    @Override
+    public long getImagesMillis() {
+        return imagesMillis.get();
+    }
+
+    @Override
+    public long getMetsMillis() {
+        return metsMillis.get();
+    }
+
+    @Override
+    public long getTotalMillis() {
+        return totalMillis.get();
+    }
+
+    @Override
+    public double getAverageThroughput() {
+        long millis = imagesMillis.get();
+        return millis > 0 ? bytesExported.get() * 1000d / millis : 0;
+    }
+
+    @Override
+    public String getLastSummary() {
+        return lastSummary;
+    }
+}
@@ -0,0 +1,39 @@
+package de.intranda.goobi.plugins;
+
+/**
+ * JMX view of the statistics of all exports since the start of the application.
+ */
+public interface ExportStatisticsMBean {
+
+    long getExports();
+
+    long getFailedExports();
+
+    long getFilesExported();
+
+    long getBytesExported();
+
+    long getRetries();
+
+    long getFailedFiles();
+
+    long getMetadataMillis();
+
+    long getPropertyMillis();
+
+    long getLookupMillis();
+
+    long getConnectMillis();
+
+    long getBookkeepingMillis();
+
+    long getImagesMillis();
+
+    long getMetsMillis();
+
+    long getTotalMillis();
+
+    double getAverageThroughput();
+
+    String getLastSummary();
+}
@@ -0,0 +1,82 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Common interface of the ways how the selected images and the METS file get to the target folder, i.e. locally, via scp or via sftp.
+ *
+ * Implementations must allow {@link #exportFile(Path, Path)} to be called by several threads at the same time.
+ */
+public interface ExportTransport extends AutoCloseable {
+
+    /**
+     * create the folder including all missing parent folders, nothing happens if the folder already exists
+     *
+     * @param folder path to the folder that should be created
+     * @throws IOException if the folder could not be created
+     */
+    void createFolders(Path folder) throws IOException;
+
+    /**
+     * export a file
+     *
+     * @param source path to the file that should be exported
+     * @param target path to the file in the target folder, the file name may differ from the source
+     * @throws IOException if the file could not be exported
+     */
+    void exportFile(Path source, Path target) throws IOException;
+
+    /**
+     * get the size of a file in the target folder
+     *
+     * @param target path to the file in the target folder
+     * @return the size of the file in bytes, or -1 if there is no such file
+     * @throws IOException if the size could not be determined
+     */
+    long getFileSize(Path target) throws IOException;
+
+    /**
+     * open a file in the target folder for reading
+     *
+     * @param target path to the file in the target folder
+     * @return InputStream providing the content of the file, which must be closed by the caller
+     * @throws IOException if the file does not exist or could not be read
+     */
+    InputStream readFile(Path target) throws IOException;
+
+    /**
+     * create or overwrite a file in the target folder
+     *
+     * @param target path to the file in the target folder
+     * @return OutputStream receiving the content of the file, the file is complete once the stream is closed
+     * @throws IOException if the file could not be created
+     */
+    OutputStream writeFile(Path target) throws IOException;
+
+    /**
+     * get the path under which a file in the target folder can be written directly through the local file system
+     *
+     * @param target path to the file in the target folder
+     * @return path in the local file system, or null if the target folder is not reachable locally
+     */
+    default Path getLocalPath(Path target) {
+        return null;
+    }
+
+    /**
+     * delete a file in the target folder, nothing happens if there is no such file
+     *
+     * @param target path to the file in the target folder
+     * @throws IOException if the file could not be deleted
+     */
+    void deleteFile(Path target) throws IOException;
+
+    /**
+     * finish all pending transfers and release the resources of this transport
+     */
+    @Override
+    void close();
+}
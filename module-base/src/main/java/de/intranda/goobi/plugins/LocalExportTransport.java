@@ -0,0 +1,213 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.sub.goobi.helper.StorageProviderInterface;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Export into a folder that is reachable via the StorageProvider of Goobi.
+ *
+ * Instead of copying, files may be linked into the target folder if it is on the same file system as the source. Every link strategy that turns
+ * out not to be supported is not tried again during the same export, and files are copied if no link strategy is left. Other errors, e.g. a
+ * missing source file, are thrown like those of a copy.
+ */
+@Log4j2
+public class LocalExportTransport implements ExportTransport {
+
+    public static final String MODE_COPY = "copy";
+    public static final String MODE_HARDLINK = "hardlink";
+    public static final String MODE_REFLINK = "reflink";
+    public static final String MODE_SYMLINK = "symlink";
+    public static final String MODE_AUTO = "auto";
+
+    private final StorageProviderInterface storageProvider;
+
+    // link strategies that are still worth trying, in order of preference
+    private final List<String> linkStrategies;
+
+    /**
+     * constructor
+     *
+     * @param storageProvider StorageProvider used for all file operations
+     * @param mode copy | hardlink | reflink | symlink | auto, where auto tries a hard link first and a reflink second
+     */
+    public LocalExportTransport(StorageProviderInterface storageProvider, String mode) {
+        this.storageProvider = storageProvider;
+        this.linkStrategies = new CopyOnWriteArrayList<>(getLinkStrategies(mode));
+    }
+
+    /**
+     * get the link strategies belonging to a mode
+     *
+     * @param mode copy | hardlink | reflink | symlink | auto
+     * @return list of the link strategies to try before copying
+     */
+    private static List<String> getLinkStrategies(String mode) {
+        switch (mode) {
+            case MODE_COPY:
+                return Collections.emptyList();
+            case MODE_HARDLINK:
+            case MODE_REFLINK:
+            case MODE_SYMLINK:
+                return Collections.singletonList(mode);
+            case MODE_AUTO:
+                // symbolic links are never chosen automatically, since they break as soon as the source is gone
+                return new ArrayList<>(Arrays.asList(MODE_HARDLINK, MODE_REFLINK));
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown local export mode '" + mode + "', please use one of copy, hardlink, reflink, symlink or auto.");
+        }
+    }
+
+    @Override
+    public void createFolders(Path folder) throws IOException {
+        // no exception will be thrown if the directories are already there, hence no need to check
+        storageProvider.createDirectories(folder);
+    }
+
+    @Override
+    public void exportFile(Path source, Path target) throws IOException {
+        for (String strategy : linkStrategies) {
+            // links cannot replace existing files
+            deleteFile(target);
+            try {
+                link(strategy, source, target);
+                return;
+
+            } catch (LinkNotSupportedException | UnsupportedOperationException e) {
+                log.info("Cannot use " + strategy + " for the export into " + target.getParent() + ", falling back: " + e.getMessage());
+                linkStrategies.remove(strategy);
+            }
+        }
+
+        storageProvider.copyFile(source, target);
+    }
+
+    @Override
+    public long getFileSize(Path target) throws IOException {
+        return storageProvider.isFileExists(target) ? storageProvider.getFileSize(target) : -1;
+    }
+
+    @Override
+    public InputStream readFile(Path target) throws IOException {
+        return storageProvider.newInputStream(target);
+    }
+
+    @Override
+    public OutputStream writeFile(Path target) throws IOException {
+        // a previous export in a link mode may have left a link here, which must not be written through
+        deleteFile(target);
+        return storageProvider.newOutputStream(target);
+    }
+
+    @Override
+    public Path getLocalPath(Path target) {
+        return target;
+    }
+
+    @Override
+    public void deleteFile(Path target) throws IOException {
+        if (storageProvider.isFileExists(target) && !storageProvider.deleteFile(target)) {
+            throw new IOException("Failed to delete " + target);
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    /**
+     * link a file into the target folder
+     *
+     * @param strategy hardlink | reflink | symlink
+     * @param source path to the file that should be linked
+     * @param target path to the link that should be created
+     * @throws LinkNotSupportedException if the file system cannot create such links
+     * @throws IOException if the link could not be created for another reason
+     */
+    private static void link(String strategy, Path source, Path target) throws IOException {
+        try {
+            switch (strategy) {
+                case MODE_HARDLINK:
+                    Files.createLink(target, source);
+                    break;
+                case MODE_SYMLINK:
+                    Files.createSymbolicLink(target, source.toAbsolutePath());
+                    break;
+                default: // MODE_REFLINK
+                    cloneFile(source, target);
+                    break;
+            }
+        } catch (FileSystemException e) {
+            throw isNotSupported(e) ? new LinkNotSupportedException(e.getMessage(), e) : e;
+        }
+    }
+
+    /**
+     * check whether an error means that the file system cannot create links at all, e.g. between two devices
+     *
+     * @param e exception thrown while creating a link
+     * @return true if the error is not caused by the single file, false otherwise
+     */
+    private static boolean isNotSupported(FileSystemException e) {
+        // subclasses like NoSuchFileException or AccessDeniedException concern the single file
+        if (e.getClass() != FileSystemException.class || e.getReason() == null) {
+            return false;
+        }
+        String reason = e.getReason().toLowerCase();
+        return reason.contains("cross-device") || reason.contains("not supported") || reason.contains("not permitted");
+    }
+
+    /**
+     * create a copy-on-write clone of a file, which only works on file systems like btrfs or xfs
+     *
+     * @param source path to the file that should be cloned
+     * @param target path to the clone that should be created
+     * @throws LinkNotSupportedException if cp is missing or failed, i.e. the file system does not support clones
+     * @throws IOException if cloning was interrupted
+     */
+    private static void cloneFile(Path source, Path target) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder("cp", "--reflink=always", source.toString(), target.toString());
+        builder.redirectErrorStream(true);
+        java.lang.Process cp;
+        try {
+            cp = builder.start();
+        } catch (IOException e) {
+            throw new LinkNotSupportedException("cp could not be started: " + e.getMessage(), e);
+        }
+        try {
+            String output = new String(cp.getInputStream().readAllBytes());
+            if (cp.waitFor() != 0) {
+                Files.deleteIfExists(target);
+                throw new LinkNotSupportedException("cp --reflink failed: " + output.trim(), null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cp.destroy();
+            throw new IOException("Interrupted while cloning " + source, e);
+        }
+    }
+
+    /**
+     * thrown if a link strategy cannot be used in the target folder at all
+     */
+    static class LinkNotSupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LinkNotSupportedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
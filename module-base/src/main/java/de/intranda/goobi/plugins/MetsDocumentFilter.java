@@ -0,0 +1,135 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ugh.dl.ContentFile;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.FileSet;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+import ugh.dl.Reference;
+
+/**
+ * Filter out information of unselected images from a DigitalDocument.
+ *
+ * Every page is judged only once, and the lists of children, references and files are each rebuilt in one pass, so that the effort grows linearly
+ * with the size of the document instead of with the square of the number of pages.
+ */
+public class MetsDocumentFilter {
+
+    private final Map<String, Integer> selectedImagesNamesOrderMap;
+
+    // image names of all pages, since DocStruct.getImageName() has to look them up through the content files every time
+    private final Map<DocStruct, String> imageNames = new IdentityHashMap<>();
+
+    private MetsDocumentFilter(Map<String, Integer> selectedImagesNamesOrderMap) {
+        this.selectedImagesNamesOrderMap = selectedImagesNamesOrderMap;
+    }
+
+    /**
+     * filter out information of unselected images from the physical structure and the file set
+     *
+     * @param prefs
+     * @param dd DigitalDocument that will be changed in place
+     * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
+     */
+    public static void filter(Prefs prefs, DigitalDocument dd, Map<String, Integer> selectedImagesNamesOrderMap) {
+        MetsDocumentFilter filter = new MetsDocumentFilter(selectedImagesNamesOrderMap);
+        filter.processPhysicalStructure(prefs, dd);
+        filter.processFileSet(dd);
+    }
+
+    /**
+     * filter out information of unselected images from the physical structure
+     *
+     * @param prefs
+     * @param dd DigitalDocument
+     */
+    private void processPhysicalStructure(Prefs prefs, DigitalDocument dd) {
+        DocStruct physical = dd.getPhysicalDocStruct();
+        List<DocStruct> children = physical.getAllChildren();
+        if (children == null || children.isEmpty()) {
+            return;
+        }
+
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+
+        // build the set of removed pages once
+        Set<DocStruct> removedPages = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DocStruct child : children) {
+            String imageName = getImageName(child); // 00000023.jpg
+            if (selectedImagesNamesOrderMap.containsKey(imageName)) {
+                // update physical order of the image page
+                Metadata physPage = child.getAllMetadataByType(typePhysPage).get(0);
+                physPage.setValue(selectedImagesNamesOrderMap.get(imageName).toString());
+            } else {
+                removedPages.add(child);
+            }
+        }
+        if (removedPages.isEmpty()) {
+            return;
+        }
+
+        // collect the logical structures that link to removed pages, each of them only once
+        Set<DocStruct> sources = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DocStruct page : removedPages) {
+            List<Reference> fromReferences = page.getAllFromReferences();
+            if (fromReferences != null) {
+                for (Reference reference : fromReferences) {
+                    sources.add(reference.getSource());
+                }
+                fromReferences.clear();
+            }
+        }
+        for (DocStruct source : sources) {
+            source.getAllToReferences().removeIf(reference -> removedPages.contains(reference.getTarget()));
+        }
+
+        children.removeIf(removedPages::contains);
+    }
+
+    /**
+     * filter out information of unselected images from the file set
+     *
+     * @param dd DigitalDocument
+     */
+    private void processFileSet(DigitalDocument dd) {
+        FileSet fileSet = dd.getFileSet();
+        fileSet.getAllFiles().removeIf(this::isReferencedByUnselectedPage);
+    }
+
+    /**
+     * check whether a file belongs to any page whose image is not selected
+     *
+     * @param file ContentFile
+     * @return true if the file should be removed from the file set, false otherwise
+     */
+    private boolean isReferencedByUnselectedPage(ContentFile file) {
+        List<DocStruct> referenced = file.getReferencedDocStructs();
+        if (referenced == null) {
+            return false;
+        }
+        for (DocStruct ds : referenced) {
+            if (!selectedImagesNamesOrderMap.containsKey(getImageName(ds))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * get the image name of a page, looking it up only once
+     *
+     * @param page DocStruct
+     * @return name of the first image of the page, e.g. 00000023.jpg
+     */
+    private String getImageName(DocStruct page) {
+        return imageNames.computeIfAbsent(page, DocStruct::getImageName);
+    }
+}
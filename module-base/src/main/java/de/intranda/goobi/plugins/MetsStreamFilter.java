@@ -0,0 +1,280 @@
+package de.intranda.goobi.plugins;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Streaming alternative to filtering the METS file through the UGH object model.
+ *
+ * The internal METS file of a process is read and written in one pass, only the events of a single file entry or page are held in memory at a
+ * time. The output keeps the semantics of the UGH path:
+ * <ul>
+ * <li>file entries of unselected images are removed from the file section</li>
+ * <li>pages of unselected images are removed from the physical structure map</li>
+ * <li>the ORDER of every remaining page, i.e. its physPageNumber, is set to its order among all selected images</li>
+ * <li>smLinks pointing to removed pages are removed from the structLink section</li>
+ * </ul>
+ * Since the file section precedes the structure maps, files are judged by their own name. This equals the UGH path as long as every file belongs
+ * to exactly one page, which is how Goobi writes its internal METS files.
+ */
+public class MetsStreamFilter {
+
+    private static final String METS_NS = "http://www.loc.gov/METS/";
+    private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+    private static final QName METS = new QName(METS_NS, "mets");
+    private static final QName FILE = new QName(METS_NS, "file");
+    private static final QName FLOCAT = new QName(METS_NS, "FLocat");
+    private static final QName STRUCT_MAP = new QName(METS_NS, "structMap");
+    private static final QName DIV = new QName(METS_NS, "div");
+    private static final QName FPTR = new QName(METS_NS, "fptr");
+    private static final QName SM_LINK = new QName(METS_NS, "smLink");
+    private static final QName HREF = new QName(XLINK_NS, "href");
+    private static final QName TO = new QName(XLINK_NS, "to");
+    private static final QName ID = new QName("ID");
+    private static final QName TYPE = new QName("TYPE");
+    private static final QName FILEID = new QName("FILEID");
+    private static final QName ORDER = new QName("ORDER");
+
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    private final Map<String, Integer> selectedImagesNamesOrderMap;
+
+    // names of all files, keyed by their IDs
+    private final Map<String, String> fileNames = new HashMap<>();
+    // IDs of all pages that were removed
+    private final Set<String> removedPageIds = new HashSet<>();
+
+    private MetsStreamFilter(Map<String, Integer> selectedImagesNamesOrderMap) {
+        this.selectedImagesNamesOrderMap = selectedImagesNamesOrderMap;
+    }
+
+    /**
+     * filter out information of unselected images from a METS file
+     *
+     * @param in InputStream providing the internal METS file of the process
+     * @param out OutputStream receiving the filtered METS file
+     * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
+     * @throws XMLStreamException if the input is not a METS file or cannot be parsed, or if the output cannot be written
+     */
+    public static void filter(InputStream in, OutputStream out, Map<String, Integer> selectedImagesNamesOrderMap) throws XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        // the METS file is trusted, but there is no need to resolve anything external anyway
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+
+        XMLEventReader reader = inputFactory.createXMLEventReader(in);
+        XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, "UTF-8");
+        try {
+            new MetsStreamFilter(selectedImagesNamesOrderMap).filter(reader, writer);
+            writer.flush();
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+
+    /**
+     * copy all events from the reader to the writer, leaving out or changing the events of unselected images
+     *
+     * @param reader XMLEventReader of the input
+     * @param writer XMLEventWriter of the output
+     * @throws XMLStreamException
+     */
+    private void filter(XMLEventReader reader, XMLEventWriter writer) throws XMLStreamException {
+        boolean rootChecked = false;
+        boolean inPhysicalStructMap = false;
+        int divDepth = 0;
+
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement element = event.asStartElement();
+                QName name = element.getName();
+
+                if (!rootChecked) {
+                    if (!METS.equals(name)) {
+                        throw new XMLStreamException("The metadata file is not a METS file, but starts with " + name);
+                    }
+                    rootChecked = true;
+
+                } else if (FILE.equals(name)) {
+                    processFile(element, reader, writer);
+                    continue;
+
+                } else if (STRUCT_MAP.equals(name)) {
+                    inPhysicalStructMap = "PHYSICAL".equals(getAttribute(element, TYPE));
+                    divDepth = 0;
+
+                } else if (inPhysicalStructMap && DIV.equals(name)) {
+                    if (divDepth == 1) {
+                        // the children of the top physical div are the pages
+                        processPage(element, reader, writer);
+                        continue;
+                    }
+                    divDepth++;
+
+                } else if (SM_LINK.equals(name) && removedPageIds.contains(getAttribute(element, TO))) {
+                    readSubtree(element, reader);
+                    continue;
+                }
+
+            } else if (event.isEndElement()) {
+                QName name = event.asEndElement().getName();
+                if (STRUCT_MAP.equals(name)) {
+                    inPhysicalStructMap = false;
+                } else if (inPhysicalStructMap && DIV.equals(name)) {
+                    divDepth--;
+                }
+            }
+
+            writer.add(event);
+        }
+    }
+
+    /**
+     * copy a file entry if its image is selected
+     *
+     * @param start start element of the file entry
+     * @param reader XMLEventReader of the input
+     * @param writer XMLEventWriter of the output
+     * @throws XMLStreamException
+     */
+    private void processFile(StartElement start, XMLEventReader reader, XMLEventWriter writer) throws XMLStreamException {
+        List<XMLEvent> events = readSubtree(start, reader);
+
+        String imageName = null;
+        for (XMLEvent event : events) {
+            if (event.isStartElement() && FLOCAT.equals(event.asStartElement().getName())) {
+                imageName = getFileName(getAttribute(event.asStartElement(), HREF));
+                break;
+            }
+        }
+        fileNames.put(getAttribute(start, ID), imageName);
+
+        if (imageName != null && selectedImagesNamesOrderMap.containsKey(imageName)) {
+            for (XMLEvent event : events) {
+                writer.add(event);
+            }
+        }
+    }
+
+    /**
+     * copy a page with its new order if its image is selected, otherwise remember it as removed
+     *
+     * @param start start element of the page
+     * @param reader XMLEventReader of the input
+     * @param writer XMLEventWriter of the output
+     * @throws XMLStreamException
+     */
+    private void processPage(StartElement start, XMLEventReader reader, XMLEventWriter writer) throws XMLStreamException {
+        List<XMLEvent> events = readSubtree(start, reader);
+
+        // just like DocStruct.getImageName(), the first file of the page determines its image
+        String imageName = null;
+        for (XMLEvent event : events) {
+            if (event.isStartElement() && FPTR.equals(event.asStartElement().getName())) {
+                imageName = fileNames.get(getAttribute(event.asStartElement(), FILEID));
+                break;
+            }
+        }
+
+        if (imageName == null || !selectedImagesNamesOrderMap.containsKey(imageName)) {
+            removedPageIds.add(getAttribute(start, ID));
+            return;
+        }
+
+        // update physical order of the image page
+        writer.add(withAttribute(start, ORDER, selectedImagesNamesOrderMap.get(imageName).toString()));
+        for (int i = 1; i < events.size(); i++) {
+            writer.add(events.get(i));
+        }
+    }
+
+    /**
+     * read all events of an element, including its start and end element
+     *
+     * @param start start element that was just read
+     * @param reader XMLEventReader of the input
+     * @return list of all events of the element
+     * @throws XMLStreamException
+     */
+    private static List<XMLEvent> readSubtree(StartElement start, XMLEventReader reader) throws XMLStreamException {
+        List<XMLEvent> events = new ArrayList<>();
+        events.add(start);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * create a copy of a start element with one attribute added or replaced
+     *
+     * @param element the original start element
+     * @param name name of the attribute
+     * @param value new value of the attribute
+     * @return the changed start element
+     */
+    private static StartElement withAttribute(StartElement element, QName name, String value) {
+        List<Attribute> attributes = new ArrayList<>();
+        Iterator<Attribute> iterator = element.getAttributes();
+        while (iterator.hasNext()) {
+            Attribute attribute = iterator.next();
+            if (!name.equals(attribute.getName())) {
+                attributes.add(attribute);
+            }
+        }
+        attributes.add(EVENT_FACTORY.createAttribute(name, value));
+        return EVENT_FACTORY.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+    }
+
+    /**
+     * get the value of an attribute
+     *
+     * @param element start element
+     * @param name name of the attribute
+     * @return the value of the attribute, or null if there is no such attribute
+     */
+    private static String getAttribute(StartElement element, QName name) {
+        Attribute attribute = element.getAttributeByName(name);
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    /**
+     * get the file name of a location, i.e. everything after the last '/'
+     *
+     * @param location location of a file
+     * @return the file name, or null if there is no location
+     */
+    private static String getFileName(String location) {
+        return location == null ? null : location.substring(location.lastIndexOf('/') + 1);
+    }
+}
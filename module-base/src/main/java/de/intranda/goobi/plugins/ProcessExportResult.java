@@ -0,0 +1,21 @@
+package de.intranda.goobi.plugins;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of the export of one process within a batch.
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessExportResult {
+    private final int processId;
+    private final String processTitle;
+    private final boolean success;
+    // problems reported by the plugin, empty if there were none
+    private final List<String> problems;
+    // message of an unexpected exception that ended the export, null if there was none
+    private final String errorMessage;
+}
@@ -0,0 +1,454 @@
+package de.intranda.goobi.plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Export to a remote host using the scp protocol on exec channels of a shared {@link SshConnection}.
+ *
+ * By default every file is sent through its own 'scp -t' channel. In batch mode, one 'scp -d -t' channel per target folder is kept open and every
+ * file is sent through it as one file record after another.
+ */
+@Log4j2
+public class ScpExportTransport implements ExportTransport {
+
+    private static final String ACK_FAILURE_MESSAGE = "Ack check failed while trying to export file using scp.";
+
+    private final SshConnection connection;
+    private final boolean batchTransfer;
+    private final int bufferSize;
+    // buffers of finished transfers, so that parallel transfers allocate one buffer each instead of one per file
+    private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<>();
+
+    // channel that is kept open in batch mode, together with its streams and the folder it writes into
+    private ChannelExec batchChannel;
+    private OutputStream batchOut;
+    private InputStream batchIn;
+    private Path batchFolder;
+
+    /**
+     * constructor
+     *
+     * @param connection ssh connection from which all channels are opened
+     * @param batchTransfer whether or not to stream all files of a folder through one single channel
+     * @param bufferSize size in bytes of the buffer used to read the files that are sent
+     */
+    public ScpExportTransport(SshConnection connection, boolean batchTransfer, int bufferSize) {
+        this.connection = connection;
+        this.batchTransfer = batchTransfer;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void createFolders(Path folder) throws IOException {
+        if (executeCommand("mkdir -p " + quoteForShell(folder.toString()), null) != 0) {
+            throw new IOException("Failed to create subfolders remotely.");
+        }
+    }
+
+    @Override
+    public void exportFile(Path source, Path target) throws IOException {
+        if (batchTransfer) {
+            exportFileInBatch(source, target);
+        } else {
+            exportFileSeparately(source, target);
+        }
+    }
+
+    @Override
+    public long getFileSize(Path target) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (executeCommand("stat -c %s " + quoteForShell(target.toString()), output) != 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(output.toString(StandardCharsets.UTF_8.name()).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected answer while trying to get the size of " + target, e);
+        }
+    }
+
+    @Override
+    public InputStream readFile(Path target) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        if (executeCommand("cat " + quoteForShell(target.toString()), content) != 0) {
+            throw new IOException("Failed to read " + target + " remotely.");
+        }
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    @Override
+    public OutputStream writeFile(Path target) throws IOException {
+        // scp needs to know the size in advance, hence files of unknown length are streamed into 'cat' instead
+        ChannelExec channelExec = openChannel();
+        String command = "cat > " + quoteForShell(target.toString());
+        log.debug("command = " + command);
+        channelExec.setCommand(command);
+
+        try {
+            OutputStream out = channelExec.getOutputStream();
+            channelExec.connect();
+            return new FilterOutputStream(out) {
+                private boolean closed;
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // wrapping writers close the stream as well, but the exit status can only be read once
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    try {
+                        // closing the stream ends the remote command
+                        super.close();
+                        if (waitForExitStatus(channelExec) != 0) {
+                            throw new IOException("Failed to write " + target + " remotely.");
+                        }
+                    } finally {
+                        channelExec.disconnect();
+                    }
+                }
+            };
+
+        } catch (JSchException e) {
+            channelExec.disconnect();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteFile(Path target) throws IOException {
+        if (executeCommand("rm -f " + quoteForShell(target.toString()), null) != 0) {
+            throw new IOException("Failed to delete " + target + " remotely.");
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeBatchChannel();
+        idleBuffers.clear();
+    }
+
+    /**
+     * export a file through its own scp channel
+     *
+     * @param source path to the file that should be exported
+     * @param target path to the file in the target folder
+     * @throws IOException if the file could not be exported
+     */
+    private void exportFileSeparately(Path source, Path target) throws IOException {
+        ChannelExec channelExec = openChannel();
+
+        String command = "scp " + " -t " + quoteForShell(target.toString());
+        log.debug("command = " + command);
+        channelExec.setCommand(command);
+
+        try (OutputStream out = channelExec.getOutputStream();
+                InputStream in = channelExec.getInputStream()) {
+
+            channelExec.connect();
+            log.debug("channel connected, starting to export");
+
+            expectAck(in);
+            sendFile(out, in, target.getFileName().toString(), source);
+
+        } catch (JSchException e) {
+            throw new IOException(e.getMessage(), e);
+
+        } finally {
+            channelExec.disconnect();
+        }
+    }
+
+    /**
+     * export a file through the channel that is kept open for its target folder
+     *
+     * @param source path to the file that should be exported
+     * @param target path to the file in the target folder
+     * @throws IOException if the file could not be exported
+     */
+    private synchronized void exportFileInBatch(Path source, Path target) throws IOException {
+        Path folder = target.getParent();
+        if (batchChannel == null || !folder.equals(batchFolder)) {
+            closeBatchChannel();
+            openBatchChannel(folder);
+        }
+
+        try {
+            sendFile(batchOut, batchIn, target.getFileName().toString(), source);
+        } catch (IOException e) {
+            // the state of the remote scp process is unknown now, hence start over with a new channel for the next file
+            closeBatchChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * open a channel running 'scp -d -t' that receives all following file records
+     *
+     * @param folder path to the targeted folder, which must already exist
+     * @throws IOException if the channel could not be opened
+     */
+    private void openBatchChannel(Path folder) throws IOException {
+        ChannelExec channelExec = openChannel();
+
+        // -d makes sure that the target is a directory that will receive all file records
+        String command = "scp -d -t " + quoteForShell(folder.toString());
+        log.debug("command = " + command);
+        channelExec.setCommand(command);
+
+        try {
+            batchOut = channelExec.getOutputStream();
+            batchIn = channelExec.getInputStream();
+            channelExec.connect();
+
+        } catch (JSchException e) {
+            channelExec.disconnect();
+            throw new IOException(e.getMessage(), e);
+
+        } catch (IOException e) {
+            channelExec.disconnect();
+            throw e;
+        }
+
+        batchChannel = channelExec;
+        batchFolder = folder;
+        log.debug("batch channel connected, starting to export");
+
+        try {
+            expectAck(batchIn);
+        } catch (IOException e) {
+            closeBatchChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * close the channel that is kept open in batch mode, if there is any
+     */
+    private void closeBatchChannel() {
+        if (batchChannel == null) {
+            return;
+        }
+        try {
+            // closing the stream ends the remote scp process
+            batchOut.close();
+            batchIn.close();
+
+        } catch (IOException e) {
+            log.warn("Failed to close the scp channel: " + e.getMessage());
+        } finally {
+            batchChannel.disconnect();
+            batchChannel = null;
+            batchOut = null;
+            batchIn = null;
+            batchFolder = null;
+        }
+    }
+
+    /**
+     * execute a command remotely and wait for it to finish
+     *
+     * @param command the command that should be executed
+     * @param output stream receiving the standard output of the command, may be null
+     * @return exit status of the command
+     * @throws IOException if the command could not be executed
+     */
+    private int executeCommand(String command, OutputStream output) throws IOException {
+        ChannelExec channelExec = openChannel();
+        log.debug("command = " + command);
+        channelExec.setCommand(command);
+
+        try (InputStream in = channelExec.getInputStream()) {
+            channelExec.connect();
+            byte[] buf = new byte[1024];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                if (output != null) {
+                    output.write(buf, 0, len);
+                }
+            }
+            return waitForExitStatus(channelExec);
+
+        } catch (JSchException e) {
+            throw new IOException(e.getMessage(), e);
+
+        } finally {
+            channelExec.disconnect();
+        }
+    }
+
+    /**
+     * wait until the remote command of a channel has finished
+     *
+     * @param channelExec ChannelExec whose input has already been closed
+     * @return exit status of the remote command
+     * @throws IOException if the thread was interrupted while waiting
+     */
+    private static int waitForExitStatus(ChannelExec channelExec) throws IOException {
+        try {
+            // the exit status may arrive shortly after the end of the output
+            while (!channelExec.isClosed()) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the remote command to finish.", e);
+        }
+        return channelExec.getExitStatus();
+    }
+
+    /**
+     * open a new exec channel from the shared connection
+     *
+     * @return ChannelExec object that is not connected yet
+     * @throws IOException if the channel could not be opened
+     */
+    private ChannelExec openChannel() throws IOException {
+        try {
+            return connection.openChannelExec();
+        } catch (JSchException e) {
+            throw new IOException("Failed to set up Jsch.", e);
+        }
+    }
+
+    /**
+     * send one file record of the scp protocol through an already connected channel and wait for the acks
+     *
+     * @param out OutputStream of the channel
+     * @param in InputStream of the channel
+     * @param fileName name of the file in the target folder, which should not include '/'
+     * @param file the file that should be sent
+     * @throws IOException if the file could not be read or the remote side did not acknowledge the file
+     */
+    private void sendFile(OutputStream out, InputStream in, String fileName, Path file) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // take the size from the opened channel, so that the announced size and the sent content belong to the same file
+            long fileSize = fileChannel.size();
+
+            // send "C0644 fileSize fileName", where fileName should not include '/'
+            String command = "C0644 " + fileSize + " " + fileName + "\n";
+            out.write(command.getBytes());
+            out.flush();
+            expectAck(in);
+
+            // send content of file in large blocks, the buffer is backed by an array that is handed to the channel without another copy
+            ByteBuffer buffer = borrowBuffer();
+            try {
+                long remaining = fileSize;
+                while (remaining > 0) {
+                    buffer.clear();
+                    if (buffer.capacity() > remaining) {
+                        buffer.limit((int) remaining);
+                    }
+                    int len = fileChannel.read(buffer);
+                    if (len < 0) {
+                        throw new IOException("File " + fileName + " was truncated while sending it.");
+                    }
+                    out.write(buffer.array(), 0, len);
+                    remaining -= len;
+                }
+            } finally {
+                idleBuffers.offer(buffer);
+            }
+        }
+
+        // send '\0'
+        out.write(0);
+        out.flush();
+        expectAck(in);
+    }
+
+    /**
+     * get a buffer that is not used by another transfer, it is only allocated if all buffers are in use
+     *
+     * @return buffer of bufferSize bytes
+     */
+    private ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = idleBuffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocate(Math.max(1, bufferSize));
+    }
+
+    /**
+     * quote a path so that it can be safely passed to a remote shell
+     *
+     * @param path the path that should be quoted
+     * @return the path enclosed in single quotes
+     */
+    private static String quoteForShell(String path) {
+        return "'" + path.replace("'", "'\"'\"'") + "'";
+    }
+
+    /**
+     * check the ack value returned by the server and fail if it is not a success
+     *
+     * @param in InputStream
+     * @throws IOException if the server did not respond with a success
+     */
+    private static void expectAck(InputStream in) throws IOException {
+        if (checkAck(in) != 0) {
+            throw new IOException(ACK_FAILURE_MESSAGE);
+        }
+    }
+
+    /**
+     * check the ack value returned by the server
+     *
+     * @param in InputStream
+     * @return response from the server
+     * @throws IOException
+     */
+    private static int checkAck(InputStream in) throws IOException {
+        // To every command sent by the client, the server responds with a single-byte "ack", where:
+        int b = in.read();
+        // b may be 0 for success,
+        //          1 for error,
+        //          2 for fatal error,
+        //          -1
+
+        if (b == 1 || b == 2) {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            do {
+                c = in.read();
+                sb.append((char) c);
+            } while (c != '\n' && c != -1);
+
+            String message = "";
+            if (b == 1) { // error
+                message = "Error happened trying to export file using scp: " + sb.toString();
+            }
+            if (b == 2) { // fatal error
+                message = "Fatal error happened trying to export file using scp: " + sb.toString();
+            }
+            if (StringUtils.isNotBlank(message)) {
+                log.error(message);
+            }
+        }
+
+        return b;
+    }
+}
@@ -1,5 +1,6 @@
 package de.intranda.goobi.plugins;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 
 import org.apache.commons.lang3.StringUtils;
@@ -8,6 +9,9 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public class SelectedImagePropertiesSerializer implements JsonSerializer<SelectedImageProperties> {
 
@@ -39,6 +43,86 @@ public class SelectedImagePropertiesSerializer implements JsonSerializer<Selecte
         return jsonObject;
     }
 
+    /**
+     * write the properties of one image directly into a JsonWriter, with the same names and values as serialize
+     * 
+     * @param out JsonWriter
+     * @param src properties of the image
+     * @throws IOException if the properties could not be written
+     */
+    static void write(JsonWriter out, SelectedImageProperties src) throws IOException {
+        out.beginObject();
+        out.name(id).value(src.getId());
+        out.name(title).value(src.getTitle());
+        out.name(altText).value(src.getAltText());
+        out.name(symbolImage).value(src.isSymbol());
+        out.name(mediaType).value(src.getMediaType());
+        out.name(creationDate).value(src.getCreationDate());
+        out.name(copyrightBDA).value(src.isCopyrightBDA() ? "ja" : "nein");
+        out.name(fileInformation).value(src.getFileInformation());
+        out.name(publishable).value(src.isPublishable() ? "ja" : "nein");
+        out.name(migratedInformation).value(src.getMigratedInformation());
+        out.endObject();
+    }
+
+    /**
+     * read the properties of one image from a JsonReader, as written by write, properties with unknown names are skipped
+     * 
+     * @param in JsonReader positioned at the start of the object
+     * @return properties of the image
+     * @throws IOException if the properties could not be read
+     */
+    static SelectedImageProperties read(JsonReader in) throws IOException {
+        SelectedImageProperties properties = new SelectedImageProperties();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals(id)) {
+                properties.setId(readString(in));
+            } else if (name.equals(title)) {
+                properties.setTitle(readString(in));
+            } else if (name.equals(altText)) {
+                properties.setAltText(readString(in));
+            } else if (name.equals(symbolImage)) {
+                properties.setSymbol(readBoolean(in));
+            } else if (name.equals(mediaType)) {
+                properties.setMediaType(readString(in));
+            } else if (name.equals(creationDate)) {
+                properties.setCreationDate(readString(in));
+            } else if (name.equals(copyrightBDA)) {
+                properties.setCopyrightBDA(readBoolean(in));
+            } else if (name.equals(fileInformation)) {
+                properties.setFileInformation(readString(in));
+            } else if (name.equals(publishable)) {
+                properties.setPublishable(readBoolean(in));
+            } else if (name.equals(migratedInformation)) {
+                properties.setMigratedInformation(readString(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return properties;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * read a flag, which is written either as boolean or as "ja" | "nein"
+     */
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return in.nextBoolean();
+        }
+        return "ja".equals(readString(in));
+    }
+
     public static void setId(String id) {
         if (StringUtils.isNotBlank(id)) {
             SelectedImagePropertiesSerializer.id = id;
@@ -2,15 +2,36 @@ package de.intranda.goobi.plugins;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 public class SelectedImages {
     private List<SelectedImageProperties> images;
     private int herisId;
 
+    // all added images grouped by their ids, so that duplicates are found without comparing them with every other image
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Map<String, List<SelectedImageProperties>> imagesById;
+
+    // list the index was built for, Gson replaces the list without calling the setter
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient List<SelectedImageProperties> indexedImages;
+
     public SelectedImages() {
         images = new ArrayList<>();
     }
@@ -19,15 +40,71 @@ public class SelectedImages {
         images = new ArrayList<>(Collections.nCopies(size, null));
     }
 
+    public void setImages(List<SelectedImageProperties> images) {
+        this.images = images;
+        // the index is rebuilt on its next use, even if the same list is set again
+        imagesById = null;
+    }
+
     public void addImage(SelectedImageProperties imageProperties) {
-        if (imageProperties != null && !images.contains(imageProperties)) {
+        if (imageProperties != null && !containsImage(imageProperties)) {
             images.add(imageProperties);
+            addToIndex(imageProperties);
         }
     }
 
     public void addImage(SelectedImageProperties imageProperties, int index) {
-        if (imageProperties != null && !images.contains(imageProperties)) {
-            images.set(index, imageProperties);
+        if (imageProperties != null && !containsImage(imageProperties)) {
+            removeFromIndex(images.set(index, imageProperties));
+            addToIndex(imageProperties);
+        }
+    }
+
+    /**
+     * check whether an equal image was added already, only images with the same id need to be compared
+     *
+     * @param imageProperties properties of the image
+     * @return true if an equal image is in the list, false otherwise
+     */
+    private boolean containsImage(SelectedImageProperties imageProperties) {
+        List<SelectedImageProperties> sameId = getIndex().get(imageProperties.getId());
+        return sameId != null && sameId.contains(imageProperties);
+    }
+
+    /**
+     * get the index of the images, it is rebuilt if the list of images was replaced since it was built
+     *
+     * @return all images grouped by their ids
+     */
+    private Map<String, List<SelectedImageProperties>> getIndex() {
+        if (imagesById == null || indexedImages != images) {
+            imagesById = new HashMap<>();
+            indexedImages = images;
+            if (images != null) {
+                for (SelectedImageProperties imageProperties : images) {
+                    addToIndex(imageProperties);
+                }
+            }
+        }
+        return imagesById;
+    }
+
+    private void addToIndex(SelectedImageProperties imageProperties) {
+        if (imageProperties != null) {
+            imagesById.computeIfAbsent(imageProperties.getId(), k -> new ArrayList<>(1)).add(imageProperties);
+        }
+    }
+
+    private void removeFromIndex(SelectedImageProperties imageProperties) {
+        if (imageProperties == null) {
+            return;
+        }
+        List<SelectedImageProperties> sameId = imagesById.get(imageProperties.getId());
+        if (sameId != null) {
+            sameId.remove(imageProperties);
+            if (sameId.isEmpty()) {
+                imagesById.remove(imageProperties.getId());
+            }
         }
     }
 }
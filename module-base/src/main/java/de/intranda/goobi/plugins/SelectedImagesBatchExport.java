@@ -0,0 +1,110 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.goobi.beans.Process;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Export of the selected images of many processes, e.g. from a batch or a GoobiScript.
+ *
+ * Every process is exported by its own plugin instance, and several processes are exported concurrently. The configuration snapshot, the ssh
+ * connections and the knowledge of already created folders are shared by all of them. Since every process opens its own channels on a shared
+ * connection, the number of concurrent processes times parallelTransfers should stay below the MaxSessions limit of the ssh server.
+ */
+@Log4j2
+public class SelectedImagesBatchExport {
+
+    private final int parallelProcesses;
+
+    /**
+     * constructor
+     *
+     * @param parallelProcesses number of processes that are exported concurrently, 1 means one after another
+     */
+    public SelectedImagesBatchExport(int parallelProcesses) {
+        this.parallelProcesses = Math.max(1, parallelProcesses);
+    }
+
+    /**
+     * export all processes
+     *
+     * @param processes Goobi processes that should be exported
+     * @return results of all processes, in the same order as the processes
+     * @throws InterruptedException if the thread was interrupted while waiting for the exports, the unfinished exports are cancelled then
+     */
+    public List<ProcessExportResult> exportProcesses(List<Process> processes) throws InterruptedException {
+        List<ProcessExportResult> results = new ArrayList<>(processes.size());
+        if (processes.isEmpty()) {
+            return results;
+        }
+
+        try (ExportResources resources = new ExportResources()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelProcesses, processes.size()));
+            try {
+                List<Future<ProcessExportResult>> futures = new ArrayList<>(processes.size());
+                for (Process process : processes) {
+                    futures.add(executor.submit(() -> exportProcess(process, resources)));
+                }
+
+                for (int i = 0; i < processes.size(); i++) {
+                    try {
+                        results.add(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        Process process = processes.get(i);
+                        results.add(new ProcessExportResult(process.getId(), process.getTitel(), false, Collections.emptyList(),
+                                String.valueOf(e.getCause())));
+                    }
+                }
+
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        long failures = results.stream().filter(result -> !result.isSuccess()).count();
+        log.info("Batch export finished: " + (results.size() - failures) + " of " + results.size() + " processes exported successfully.");
+        return results;
+    }
+
+    /**
+     * export one process with its own plugin instance
+     *
+     * @param process Goobi process
+     * @param resources resources shared by all exports of the batch
+     * @return result of the export
+     */
+    private static ProcessExportResult exportProcess(Process process, ExportResources resources) {
+        SelectedImagesExportPlugin plugin = new SelectedImagesExportPlugin();
+        plugin.setSharedResources(resources);
+        try {
+            boolean success = plugin.startExport(process);
+            return new ProcessExportResult(process.getId(), process.getTitel(), success, getProblems(plugin), null);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ProcessExportResult(process.getId(), process.getTitel(), false, getProblems(plugin), "Export was interrupted.");
+
+        } catch (Exception e) { // NOSONAR startExport declares a long list of exceptions, all of which only fail this process
+            log.error("Export of process with ID " + process.getId() + " failed", e);
+            return new ProcessExportResult(process.getId(), process.getTitel(), false, getProblems(plugin), e.getMessage());
+        }
+    }
+
+    /**
+     * get a copy of the problems reported by a plugin instance
+     *
+     * @param plugin SelectedImagesExportPlugin
+     * @return list of problems, empty if there were none
+     */
+    private static List<String> getProblems(SelectedImagesExportPlugin plugin) {
+        return plugin.getProblems() == null ? Collections.emptyList() : new ArrayList<>(plugin.getProblems());
+    }
+}
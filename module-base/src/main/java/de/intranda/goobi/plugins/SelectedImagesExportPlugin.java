@@ -1,21 +1,33 @@
 package de.intranda.goobi.plugins;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.configuration.SubnodeConfiguration;
-import org.apache.commons.configuration.XMLConfiguration;
-import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
-import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
 import org.apache.commons.lang.StringUtils;
 import org.goobi.beans.Process;
 import org.goobi.beans.Processproperty;
@@ -25,13 +37,11 @@ import org.goobi.production.enums.PluginType;
 import org.goobi.production.plugin.interfaces.IExportPlugin;
 import org.goobi.production.plugin.interfaces.IPlugin;
 
-import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
+import com.google.gson.stream.JsonWriter;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 
-import de.sub.goobi.config.ConfigPlugins;
 import de.sub.goobi.helper.Helper;
+import de.sub.goobi.helper.HelperSchritte;
 import de.sub.goobi.helper.StorageProvider;
 import de.sub.goobi.helper.StorageProviderInterface;
 import de.sub.goobi.helper.VariableReplacer;
@@ -39,20 +49,14 @@ import de.sub.goobi.helper.exceptions.DAOException;
 import de.sub.goobi.helper.exceptions.ExportFileException;
 import de.sub.goobi.helper.exceptions.SwapException;
 import de.sub.goobi.helper.exceptions.UghHelperException;
-import de.sub.goobi.persistence.managers.PropertyManager;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import net.xeoh.plugins.base.annotations.PluginImplementation;
-import ugh.dl.ContentFile;
 import ugh.dl.DigitalDocument;
-import ugh.dl.DocStruct;
-import ugh.dl.FileSet;
 import ugh.dl.Fileformat;
-import ugh.dl.Metadata;
-import ugh.dl.MetadataType;
 import ugh.dl.Prefs;
-import ugh.dl.Reference;
 import ugh.exceptions.DocStructHasNoTypeException;
 import ugh.exceptions.MetadataTypeNotAllowedException;
 import ugh.exceptions.PreferencesException;
@@ -75,13 +79,43 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
 
     // whether or not to export a METS file
     private boolean exportMetsFile;
+    // how to filter the METS file: ugh | stax
+    private String metsFilter;
     // name of the Processproperty that holds information of all selected images
     private String propertyName;
     // media | master | ...
     private String sourceFolderName;
-
-    // whether or not to use scp for the export
-    private boolean useScp;
+    // how to find the selected images in the source folder: listing | direct
+    private String imageLookup;
+    // number of images that are exported concurrently, 1 means one after another
+    private int parallelTransfers;
+    // whether or not to skip images that did not change since the last export into the same target folder
+    private boolean incrementalExport;
+    // whether or not an incremental export removes images that were deselected since the last export
+    private boolean deleteDeselectedImages;
+    // manifest of the target folder during an incremental export
+    private transient ExportManifest manifest;
+    // retries of failing images and whether or not to carry on with the remaining images afterwards
+    private transient ExportErrorPolicy errorPolicy;
+    // whether or not to record every exported image, so that an aborted export can be continued by the next run
+    private boolean resumableExport;
+    // journal of the exported images during a resumable export
+    private transient ExportCheckpoint checkpoint;
+    // whether or not to write the names and orders of the exported images into selection.json
+    private boolean exportSelectionFile;
+    // whether to put all files into one archive: none | zip | tar
+    private String archiveFormat;
+    // file name of the archive in the target folder
+    private String archiveName;
+    // level of the compression of ZIP archives, from 0 to 9
+    private int archiveCompressionLevel;
+    // whether or not images that are compressed already are stored in ZIP archives without compressing them again
+    private boolean archiveStoreCompressedImages;
+
+    // how to export the files: local | scp | sftp
+    private String transport;
+    // how to put the files into a local target folder: copy | hardlink | reflink | symlink | auto
+    private String localExportMode;
     // path to the known_hosts file, which by default should be {user.home}/.ssh/known_hosts
     private String knownHosts;
     // user name to use scp for the export
@@ -90,18 +124,53 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
     private String scpPassword;
     // host name to use scp for the export
     private String scpHostname;
+    // whether or not to stream all files through one single scp channel
+    private boolean scpBatchTransfer;
+    // size in bytes of the buffer used to read the files that are sent via scp
+    private int scpBufferSize;
+    // maximum number of pending write requests per sftp channel
+    private int sftpBulkRequests;
+    // ssh session shared by all remote transfers of one export run
+    private transient SshConnection sshConnection;
+    // resources shared with the other exports of a batch, null if this is a single export
+    @Setter(AccessLevel.PACKAGE)
+    private transient ExportResources sharedResources;
 
     // path to the targeted folder for the export
     private transient Path targetFolderPath;
 
+    // ruleset and metadata of the process, read only once per export run
+    private transient Prefs prefs;
+    private transient Fileformat fileformat;
+
     private static StorageProviderInterface storageProvider = StorageProvider.getInstance();
 
-    private static final String TEMP_FILE_NAME = "temp.xml";
+    static final String TRANSPORT_LOCAL = "local";
+    static final String TRANSPORT_SCP = "scp";
+    static final String TRANSPORT_SFTP = "sftp";
+
+    static final String METS_FILTER_UGH = "ugh";
+    static final String METS_FILTER_STAX = "stax";
+
+    static final String IMAGE_LOOKUP_LISTING = "listing";
+    static final String IMAGE_LOOKUP_DIRECT = "direct";
+
     private static final String METS_FILE_NAME = "mets.xml";
+    private static final String SELECTION_FILE_NAME = "selection.json";
+    private static final String LOG_PREFIX = "Selected Images Export Plugin: ";
 
     @Getter
     private List<String> problems;
 
+    // progress of the image transfer of the current or last export run
+    @Getter
+    private transient volatile ExportProgress progress;
+    // timers and counters of the current or last export run
+    @Getter
+    private transient volatile ExportMetrics metrics;
+    // journal entries of the current export run, null while no export is running
+    private transient volatile ExportJournal journal;
+
     @Override
     public void setExportFulltext(boolean arg0) {
         // won't be used in this plugin
@@ -126,35 +195,94 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
             SwapException, DAOException, TypeNotAllowedForParentException {
         log.debug("================= STARTING TO EXPORT SELECTED IMAGES =================");
 
-        problems = new ArrayList<>();
+        // problems may be read by other threads while an export job is running
+        problems = Collections.synchronizedList(new ArrayList<>());
+        progress = new ExportProgress();
+        metrics = new ExportMetrics();
+        // a background job opens the journal itself, so that its outcome becomes part of the same summary
+        boolean ownJournal = journal == null;
+        if (ownJournal) {
+            journal = new ExportJournal(process.getId(), LOG_PREFIX);
+        }
 
-        // read mets file to test if it is readable
         try {
-            Prefs prefs = process.getRegelsatz().getPreferences();
-            Fileformat ff = null;
-            ff = process.readMetadataFile();
-            DigitalDocument dd = ff.getDigitalDocument();
+            return exportProcess(process);
+        } finally {
+            // buffered messages must not get lost if the export ends with an exception
+            if (ownJournal) {
+                journal.finish();
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * export the selected images and the mets file of a process
+     * 
+     * @param process Goobi process
+     * @return true if the export succeeded, false otherwise
+     */
+    private boolean exportProcess(Process process) throws IOException, InterruptedException, DocStructHasNoTypeException, PreferencesException,
+            WriteException, MetadataTypeNotAllowedException, ExportFileException, UghHelperException, ReadException, SwapException, DAOException,
+            TypeNotAllowedForParentException {
+        // read mets file to test if it is readable, it is kept for the generation of the exported mets file
+        long start = System.nanoTime();
+        try {
+            prefs = process.getRegelsatz().getPreferences();
+            fileformat = process.readMetadataFile();
+            DigitalDocument dd = fileformat.getDigitalDocument();
             VariableReplacer replacer = new VariableReplacer(dd, prefs, process, null);
 
             // read information from config file
             initializeFields(process, replacer);
 
+            if (METS_FILTER_STAX.equals(metsFilter)) {
+                // the streaming filter reads the metadata file on its own, hence there is no need to keep the parsed one
+                prefs = null;
+                fileformat = null;
+            }
+
         } catch (ReadException | PreferencesException | IOException | SwapException e) {
             log.error(e);
             problems.add("Cannot read metadata file.");
+            finishExport(process.getId(), false);
             return false;
         }
+        metrics.addTime(ExportMetrics.PHASE_METADATA, start);
 
         // get the maps of selected images
+        start = System.nanoTime();
         Map<String, Integer> selectedImagesNamesOrderMap = getSelectedImagesNamesOrderMap(process);
-        Map<Path, Integer> selectedImagesOrderMap = getSelectedImagesOrderMap(process, selectedImagesNamesOrderMap);
+        metrics.addTime(ExportMetrics.PHASE_PROPERTY, start);
+
+        start = System.nanoTime();
+        Map<Path, Integer> selectedImagesOrderMap =
+                selectedImagesNamesOrderMap == null ? null : getSelectedImagesOrderMap(process, selectedImagesNamesOrderMap);
+        metrics.addTime(ExportMetrics.PHASE_LOOKUP, start);
 
         boolean success = selectedImagesOrderMap != null;
 
-        // export the selected images
-        success = success && exportSelectedImages(process, selectedImagesOrderMap);
-        // export the mets-file
-        success = success && (!exportMetsFile || exportMetsFile(process, selectedImagesNamesOrderMap));
+        try (ExportTransport exportTransport = success ? createTransport(process.getId()) : null) {
+            success = success && exportTransport != null;
+            success = success && (!resumableExport || openCheckpoint(process));
+            // export the selected images, which measures its phases on its own
+            success = success && exportSelectedImages(process.getId(), exportTransport, selectedImagesOrderMap);
+            // export the mets-file
+            start = System.nanoTime();
+            success = success && (!exportMetsFile || exportMetsFile(process, exportTransport, selectedImagesNamesOrderMap));
+            metrics.addTime(ExportMetrics.PHASE_METS, start);
+            // export the names and orders of the exported images
+            success = success && (!exportSelectionFile || exportSelectionFile(process.getId(), exportTransport, selectedImagesOrderMap));
+            success = success && finishArchive(process.getId(), exportTransport);
+        } finally {
+            closeCheckpoint(process.getId(), success);
+            closeSshConnection();
+            // release the parsed metadata, the plugin instance may live much longer than the export
+            prefs = null;
+            fileformat = null;
+        }
+
+        finishExport(process.getId(), success);
 
         // check the success
         if (!success) {
@@ -165,6 +293,85 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
         return success;
     }
 
+    /**
+     * queue the export of a process and return at once, the export runs in the background with its own plugin instance
+     * 
+     * @param process Goobi process
+     * @return ExportJob that provides the progress and the result of the export
+     */
+    public ExportJob startExportAsync(Process process) {
+        SelectedImagesExportPlugin worker = new SelectedImagesExportPlugin();
+        worker.setStep(step);
+        return ExportJob.submit(worker, process);
+    }
+
+    /**
+     * run the export as a background job, write its outcome into the journal and close the step if it succeeded
+     * 
+     * @param process Goobi process
+     * @return true if the export succeeded, false otherwise
+     */
+    boolean runExportJob(Process process) {
+        boolean success = false;
+        journal = new ExportJournal(process.getId(), LOG_PREFIX);
+        try {
+            try {
+                // the destination is not used, since the target folder is configured
+                success = startExport(process, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                problems.add("The export was interrupted.");
+            } catch (Exception e) { // NOSONAR startExport declares a long list of exceptions, all of which fail the job
+                log.error(e);
+                problems.add("Unexpected error: " + e.getMessage());
+            }
+            if (!progress.isFinished()) {
+                progress.finish();
+            }
+
+            // the outcome of the job is added to the summary of the export, so that the whole run is one journal entry
+            if (success) {
+                String outcome = "Export job finished: " + metrics;
+                logTerminal(LogType.INFO, outcome);
+                journal.addSummary(LogType.INFO, outcome);
+                if (step != null) {
+                    new HelperSchritte().CloseStepObjectAutomatic(step);
+                }
+            } else {
+                List<String> problemsCopy;
+                // the list is synchronized, but iterating over it is not
+                synchronized (problems) {
+                    problemsCopy = new ArrayList<>(problems);
+                }
+                String outcome = "Export job failed: " + String.join(" ", problemsCopy);
+                logTerminal(LogType.ERROR, outcome);
+                journal.addSummary(LogType.ERROR, outcome);
+            }
+        } finally {
+            journal.finish();
+            journal = null;
+        }
+        return success;
+    }
+
+    /**
+     * finish the progress and the metrics of the export run, add its summary to the statistics and write it into the terminal, the journal only
+     * receives the summary of a failed export
+     * 
+     * @param processId id of the Goobi process
+     * @param success whether or not the export succeeded
+     */
+    private void finishExport(int processId, boolean success) {
+        progress.finish();
+        metrics.finish(progress, success);
+        String summary = "Export of process " + processId + (success ? " succeeded: " : " failed: ") + metrics;
+        log.info(summary);
+        ExportStatistics.getInstance().record(metrics, summary);
+        if (!success) {
+            journal.addSummary(LogType.ERROR, summary);
+        }
+    }
+
     /**
      * initialize private fields
      * 
@@ -172,32 +379,74 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
      * @param replacer VariableReplacer
      */
     private void initializeFields(Process process, VariableReplacer replacer) {
-        SubnodeConfiguration config = getConfig(process);
-        exportMetsFile = config.getBoolean("./exportMetsFile", false);
-        boolean createSubfolders = config.getBoolean("./createSubfolders", false);
-        propertyName = config.getString("./propertyName", "").trim();
-        sourceFolderName = config.getString("./sourceFolder", "").trim();
-        String targetFolder = config.getString("targetFolder", "").trim();
-
-        useScp = config.getBoolean("./useScp", false);
-        knownHosts = config.getString("knownHosts", "").trim();
-        scpLogin = config.getString("./scpLogin", "");
-        scpPassword = config.getString("./scpPassword", "");
-        scpHostname = config.getString("./scpHostname", "").trim();
+        String projectName = process.getProjekt().getTitel();
+        log.debug("projectName = " + projectName);
+        ExportConfiguration config = ExportConfiguration.getInstance(title, projectName);
+        exportMetsFile = config.isExportMetsFile();
+        metsFilter = config.getMetsFilter();
+        boolean createSubfolders = config.isCreateSubfolders();
+        propertyName = config.getPropertyName();
+        sourceFolderName = config.getSourceFolder();
+        imageLookup = config.getImageLookup();
+        String targetFolder = config.getTargetFolder();
+        parallelTransfers = config.getParallelTransfers();
+        incrementalExport = config.isIncrementalExport();
+        deleteDeselectedImages = config.isDeleteDeselectedImages();
+        resumableExport = config.isResumableExport();
+        errorPolicy = new ExportErrorPolicy(config.getRetries(), config.getRetryDelay(), config.isContinueOnError());
+        exportSelectionFile = config.isExportSelectionFile();
+        archiveFormat = config.getArchiveFormat();
+        archiveName = config.getArchiveName();
+        archiveCompressionLevel = config.getArchiveCompressionLevel();
+        archiveStoreCompressedImages = config.isArchiveStoreCompressedImages();
+
+        transport = config.getTransport();
+        localExportMode = config.getLocalExportMode();
+        knownHosts = config.getKnownHosts();
+        scpLogin = config.getScpLogin();
+        scpPassword = config.getScpPassword();
+        scpHostname = config.getScpHostname();
+        scpBatchTransfer = config.isScpBatchTransfer();
+        scpBufferSize = config.getScpBufferSize();
+        sftpBulkRequests = config.getSftpBulkRequests();
 
         // apply variable replacer on certain fields
         propertyName = replacer.replace(propertyName);
         targetFolder = replacer.replace(targetFolder);
+        archiveName = StringUtils.isBlank(archiveName) ? process.getTitel() + "." + archiveFormat : replacer.replace(archiveName);
+
+        if (!ArchiveExportTransport.FORMAT_NONE.equals(archiveFormat)) {
+            // all files of an archive are written into one stream
+            parallelTransfers = 1;
+        }
 
         // create subfolders if configured so
         targetFolderPath = Path.of(targetFolder, createSubfolders ? sourceFolderName : "");
 
         log.debug("exportMetsFile: {}", exportMetsFile ? "yes" : "no");
+        log.debug("metsFilter = " + metsFilter);
         log.debug("createSubfolders: {}", createSubfolders ? "yes" : "no");
         log.debug("propertyName = " + propertyName);
         log.debug("sourceFolderName = " + sourceFolderName);
+        log.debug("imageLookup = " + imageLookup);
         log.debug("targetFolder = " + targetFolder);
-        log.debug("useScp: {}", useScp ? "yes" : "no");
+        log.debug("parallelTransfers = " + parallelTransfers);
+        log.debug("incrementalExport: {}", incrementalExport ? "yes" : "no");
+        log.debug("deleteDeselectedImages: {}", deleteDeselectedImages ? "yes" : "no");
+        log.debug("resumableExport: {}", resumableExport ? "yes" : "no");
+        log.debug("continueOnError: {}", errorPolicy.isContinueOnError() ? "yes" : "no");
+        log.debug("retries = " + errorPolicy.getRetries());
+        log.debug("retryDelay = " + errorPolicy.getRetryDelay());
+        log.debug("exportSelectionFile: {}", exportSelectionFile ? "yes" : "no");
+        log.debug("archiveFormat = " + archiveFormat);
+        log.debug("archiveName = " + archiveName);
+        log.debug("archiveCompressionLevel = " + archiveCompressionLevel);
+        log.debug("archiveStoreCompressedImages: {}", archiveStoreCompressedImages ? "yes" : "no");
+        log.debug("transport = " + transport);
+        log.debug("localExportMode = " + localExportMode);
+        log.debug("scpBatchTransfer: {}", scpBatchTransfer ? "yes" : "no");
+        log.debug("scpBufferSize = " + scpBufferSize);
+        log.debug("sftpBulkRequests = " + sftpBulkRequests);
     }
 
     /**
@@ -228,18 +477,55 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
             return null; // NOSONAR
         }
 
-        // get names of all selected images
-        Map<Path, Integer> selectedImagesOrderMap = new HashMap<>();
-
         Path imageFolderPath = Path.of(imageFolder);
         log.debug("imageFolderPath = " + imageFolderPath);
-        List<Path> imagePaths = storageProvider.listFiles(imageFolder);
+
+        Map<Path, Integer> selectedImagesOrderMap;
+        if (IMAGE_LOOKUP_DIRECT.equals(imageLookup)) {
+            selectedImagesOrderMap = resolveSelectedImages(imageFolderPath, imageNamesOrderMap);
+        } else if (IMAGE_LOOKUP_LISTING.equals(imageLookup)) {
+            selectedImagesOrderMap = listSelectedImages(imageFolderPath, imageNamesOrderMap);
+        } else {
+            String message = "Unknown image lookup '" + imageLookup + "', please use one of listing or direct.";
+            logBoth(process.getId(), LogType.ERROR, message);
+            return null; // NOSONAR
+        }
+
+        // report selected images that are not there, instead of silently exporting less than selected
+        if (selectedImagesOrderMap.size() < imageNamesOrderMap.size()) {
+            Set<String> foundNames = new HashSet<>();
+            for (Path image : selectedImagesOrderMap.keySet()) {
+                foundNames.add(image.getFileName().toString());
+            }
+            for (String imageName : imageNamesOrderMap.keySet()) {
+                if (!foundNames.contains(imageName)) {
+                    String message = "The selected image '" + imageName + "' does not exist in the folder '" + sourceFolderName + "'.";
+                    logImage(process.getId(), LogType.WARN, message);
+                    problems.add(message);
+                }
+            }
+        }
+
+        return selectedImagesOrderMap;
+    }
+
+    /**
+     * find the selected images by listing the whole source folder, which is the cheapest way as long as the folder is on a local file system
+     * 
+     * @param imageFolderPath path to the source folder
+     * @param imageNamesOrderMap map between names of selected images and their orders among all selected
+     * @return a map between paths of the found images and their orders among all selected
+     */
+    static Map<Path, Integer> listSelectedImages(Path imageFolderPath, Map<String, Integer> imageNamesOrderMap) {
+        Map<Path, Integer> selectedImagesOrderMap = new HashMap<>();
+
+        List<Path> imagePaths = storageProvider.listFiles(imageFolderPath.toString());
         log.debug("imagePaths has size " + imagePaths.size());
 
         for (Path imagePath : imagePaths) {
             String fileName = imagePath.getFileName().toString();
             if (imageNamesOrderMap.containsKey(fileName)) {
-                Path image = Paths.get(imageFolder, fileName);
+                Path image = imageFolderPath.resolve(fileName);
                 selectedImagesOrderMap.put(image, imageNamesOrderMap.get(fileName));
             }
         }
@@ -247,11 +533,32 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
         return selectedImagesOrderMap;
     }
 
+    /**
+     * find the selected images by checking every selected name, which avoids listing large folders on S3 or NFS
+     * 
+     * @param imageFolderPath path to the source folder
+     * @param imageNamesOrderMap map between names of selected images and their orders among all selected
+     * @return a map between paths of the found images and their orders among all selected
+     */
+    static Map<Path, Integer> resolveSelectedImages(Path imageFolderPath, Map<String, Integer> imageNamesOrderMap) {
+        Map<Path, Integer> selectedImagesOrderMap = new HashMap<>();
+
+        for (Map.Entry<String, Integer> entry : imageNamesOrderMap.entrySet()) {
+            Path image = imageFolderPath.resolve(entry.getKey());
+            // names like '../mets.xml' must not reach outside of the source folder
+            if (imageFolderPath.equals(image.getParent()) && storageProvider.isFileExists(image)) {
+                selectedImagesOrderMap.put(image, entry.getValue());
+            }
+        }
+
+        return selectedImagesOrderMap;
+    }
+
     /**
      * get the map between names of selected images and their orders among all selected
      * 
      * @param process Goobi process
-     * @return the map between names of selected images and their orders among all selected
+     * @return the map between names of selected images and their orders among all selected, or null if the property could not be parsed
      */
     private Map<String, Integer> getSelectedImagesNamesOrderMap(Process process) {
         Map<String, Integer> selectedImagesNamesOrderMap = new HashMap<>();
@@ -259,16 +566,12 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
         if (property != null) {
             String propertyValue = property.getWert();
             log.debug("propertyValue = " + propertyValue);
-            // remove { and } from both ends
-            String reducedValue = propertyValue.substring(1, propertyValue.length() - 1);
-            String[] items = reducedValue.split(",");
-            for (String item : items) {
-                String[] itemParts = item.split(":");
-                String imageName = itemParts[0];
-                // remove " from both ends
-                String reducedImageName = imageName.substring(1, imageName.length() - 1);
-                int imageOrder = Integer.parseInt(itemParts[1]);
-                selectedImagesNamesOrderMap.put(reducedImageName, imageOrder);
+            try {
+                selectedImagesNamesOrderMap = SelectedImagesPropertyParser.parse(propertyValue);
+            } catch (IOException e) {
+                String message = "The value of the property '" + propertyName + "' is not a valid selection of images: " + e.getMessage();
+                logBoth(process.getId(), LogType.ERROR, message);
+                return null; // NOSONAR
             }
         }
 
@@ -282,7 +585,8 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
      * @return the Processproperty object holding information of all selected images
      */
     private Processproperty getProcessproperty(Process process) {
-        List<Processproperty> props = PropertyManager.getProcessPropertiesForProcess(process.getId());
+        // the properties attached to the process are loaded at most once per process, and usually already are when the export starts
+        List<Processproperty> props = process.getEigenschaften();
         for (Processproperty p : props) {
             if (propertyName.equals(p.getTitel())) {
                 return p;
@@ -297,461 +601,820 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
     /**
      * export all selected images
      * 
-     * @param process Goobi process
+     * @param processId id of the Goobi process
+     * @param transport ExportTransport used to export the images
      * @param selectedImagesOrderMap map between selected Image objects and their orders among all selected
      * @return true if all selected images are successfully exported, false otherwise
      */
-    private boolean exportSelectedImages(Process process, Map<Path, Integer> selectedImagesOrderMap) {
-        int processId = process.getId();
+    private boolean exportSelectedImages(int processId, ExportTransport transport, Map<Path, Integer> selectedImagesOrderMap) {
+        // everything except the transfers is bookkeeping, so that the throughput of the transfers is not understated
+        long start = System.nanoTime();
 
-        return useScp ? exportSelectedImagesUsingScp(processId, selectedImagesOrderMap)
-                : exportSelectedImagesLocally(processId, selectedImagesOrderMap);
+        // create folders if necessary
+        boolean success = createFolders(processId, transport, targetFolderPath);
+        if (!success) {
+            metrics.addTime(ExportMetrics.PHASE_BOOKKEEPING, start);
+            return false;
+        }
+
+        Collection<Path> images = selectedImagesOrderMap.keySet();
+        if (incrementalExport) {
+            manifest = readManifest(processId, transport);
+            success = !deleteDeselectedImages || deleteDeselectedImages(processId, transport, images);
+            images = getChangedImages(transport, images);
+        }
+
+        Map<Path, Long> imageSizes = getImageSizes(images);
+        if (checkpoint != null) {
+            images = getUnfinishedImages(processId, transport, images, imageSizes);
+        }
+        progress.start(images.size(), images.stream().mapToLong(imageSizes::get).sum());
+        metrics.addTime(ExportMetrics.PHASE_BOOKKEEPING, start);
+
+        Predicate<Path> exporter = image -> {
+            boolean exported = exportImage(processId, transport, image, targetFolderPath) && (!incrementalExport || addToManifest(image))
+                    && (checkpoint == null || addToCheckpoint(image, imageSizes.get(image)));
+            if (exported) {
+                progress.fileDone(imageSizes.get(image));
+            }
+            return exported;
+        };
+        start = System.nanoTime();
+        if (success && parallelTransfers > 1) {
+            success = exportImagesInParallel(images, exporter);
+        } else if (success) {
+            success = exportImagesSequentially(images, exporter);
+        }
+        metrics.addTime(ExportMetrics.PHASE_IMAGES, start);
+
+        // the manifest is also written after a failure, so that the next run only needs to export the rest
+        if (incrementalExport) {
+            start = System.nanoTime();
+            success = writeManifest(processId, transport) && success;
+            metrics.addTime(ExportMetrics.PHASE_BOOKKEEPING, start);
+        }
+
+        return success;
     }
 
-    // ================= EXPORT USING SCP ================= //
     /**
-     * export all selected images via scp
+     * get a key that identifies a folder together with the host it belongs to
      * 
-     * @param processId id of the Goobi process
-     * @param selectedImagesOrderMap map between selected Image objects and their orders among all selected
-     * @return true if all selected images are successfully exported via scp, false otherwise
+     * @param folderPath path to the folder
+     * @return the path for local exports, or login@host:path for remote ones
      */
-    private boolean exportSelectedImagesUsingScp(int processId, Map<Path, Integer> selectedImagesOrderMap) {
-        // check all necessary fields
-        boolean success = checkFieldsForScp(processId);
-
-        // create folders if necessary
-        success = success && createFoldersUsingScp(processId, targetFolderPath);
+    private String getFolderKey(Path folderPath) {
+        return TRANSPORT_LOCAL.equals(transport) ? folderPath.toString() : scpLogin + "@" + scpHostname + ":" + folderPath;
+    }
 
-        // copy all selected images to targetFolderPath
-        for (Path image : selectedImagesOrderMap.keySet()) {
-            success = success && exportImageUsingScp(processId, image, targetFolderPath);
+    /**
+     * create folders
+     * 
+     * @param processId id of the Goobi process
+     * @param transport ExportTransport used to create the folders
+     * @param folderPath path to the folder that should be created
+     * @return true if the folder is successfully created, false if any IOException should happen
+     */
+    private boolean createFolders(int processId, ExportTransport transport, Path folderPath) {
+        // within a batch, folders that another export already created are not created again
+        String folderKey = getFolderKey(folderPath);
+        if (sharedResources != null && sharedResources.isFolderCreated(folderKey)) {
+            return true;
         }
+        try {
+            transport.createFolders(folderPath);
+            if (sharedResources != null) {
+                sharedResources.addCreatedFolder(folderKey);
+            }
+            return true;
+        } catch (IOException e) {
+            String message = "IOException caught while trying to create the directories under " + folderPath.toString() + ": " + e.getMessage();
+            logBoth(processId, LogType.ERROR, message);
+            return false;
+        }
+    }
 
-        return success;
+    /**
+     * get the sizes of all images that are going to be exported
+     * 
+     * @param images paths to the images
+     * @return map between paths of the images and their sizes in bytes, where the size is 0 if it cannot be determined
+     */
+    private Map<Path, Long> getImageSizes(Collection<Path> images) {
+        Map<Path, Long> imageSizes = new HashMap<>();
+        for (Path image : images) {
+            long size = 0;
+            try {
+                size = storageProvider.getFileSize(image);
+            } catch (IOException e) {
+                log.debug("Cannot determine the size of " + image + ": " + e.getMessage());
+            }
+            imageSizes.put(image, size);
+        }
+        return imageSizes;
     }
 
     /**
-     * create folders via scp
+     * export the image, retrying it as often as configured
      * 
      * @param processId id of the Goobi process
-     * @param folderPath path to the folder that should be created
-     * @return true if the folder is successfully created, false if any JSchException should happen
+     * @param transport ExportTransport used to export the image
+     * @param image Image object that is to be exported
+     * @param targetFolderPath path to the targeted folder
+     * @return true if the image is successfully exported, false otherwise
      */
-    private boolean createFoldersUsingScp(int processId, Path folderPath) {
-        ChannelExec channelExec = getChannelExec(processId);
-        if (channelExec == null) {
+    private boolean exportImage(int processId, ExportTransport transport, Path image, Path targetFolderPath) {
+        String imageName = image.getFileName().toString();
+        Path imageTargetPath = targetFolderPath.resolve(imageName);
+
+        try {
+            errorPolicy.run(() -> transport.exportFile(image, imageTargetPath), (attempt, delay, e) -> {
+                metrics.countRetry();
+                log.warn("Failed to export image '" + imageName + "', retrying in " + delay + " ms: " + e.getMessage());
+            });
+            return true;
+
+        } catch (IOException e) {
+            int attempts = errorPolicy.getAttempts();
+            String message = "Failed to export image '" + imageName + "'" + (attempts > 1 ? " after " + attempts + " attempts" : "") + ": "
+                    + e.getMessage();
+            logImage(processId, LogType.ERROR, message);
+            problems.add(message);
+            metrics.countFailedFile();
             return false;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            problems.add("Export of image '" + imageName + "' was interrupted.");
+            return false;
+        }
+    }
+
+    /**
+     * export the images one after another
+     * 
+     * @param images paths to the images that should be exported
+     * @param exporter Predicate exporting one image and returning whether this succeeded
+     * @return true if all images are successfully exported, false otherwise
+     */
+    private boolean exportImagesSequentially(Collection<Path> images, Predicate<Path> exporter) {
+        boolean success = true;
+        int skipped = 0;
+        for (Path image : images) {
+            if (!errorPolicy.isStopped(!success)) {
+                success = exporter.test(image) && success;
+            } else {
+                skipped++;
+            }
         }
+        reportSkippedImages(skipped);
+        return success;
+    }
 
-        String command = "mkdir -p " + folderPath;
-        channelExec.setCommand(command);
+    /**
+     * report the images that were not tried after the export had stopped at the first failure
+     * 
+     * @param skipped number of images that were not tried
+     */
+    private void reportSkippedImages(int skipped) {
+        if (skipped > 0) {
+            problems.add(skipped + " further images were not exported, since the export stopped at the first failure.");
+        }
+    }
 
+    /**
+     * export the images concurrently using a bounded pool of worker threads
+     * 
+     * @param images images that should be exported
+     * @param exporter function exporting a single image, returning true if the image is successfully exported
+     * @return true if all images are successfully exported, false otherwise
+     */
+    private boolean exportImagesInParallel(Collection<Path> images, Predicate<Path> exporter) {
+        int poolSize = Math.min(parallelTransfers, images.size());
+        log.debug("exporting " + images.size() + " images using " + poolSize + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, poolSize));
+
+        // just like the sequential export, no further image should be started once an image has failed, unless configured otherwise
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<Future<Boolean>> results = new ArrayList<>();
         try {
-            channelExec.connect();
+            for (Path image : images) {
+                results.add(executor.submit(() -> {
+                    if (errorPolicy.isStopped(failed.get())) {
+                        return null;
+                    }
+                    boolean exported = exporter.test(image);
+                    if (!exported) {
+                        failed.set(true);
+                    }
+                    return exported;
+                }));
+            }
 
-        } catch (JSchException e) {
-            String message = "Failed to create subfolders remotely.";
-            logBoth(processId, LogType.ERROR, message);
+            // wait for all images, the failures themselves were already reported by the exporter
+            int skipped = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get() == null) {
+                    skipped++;
+                }
+            }
+            reportSkippedImages(skipped);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            problems.add("Export of the selected images was interrupted.");
+            return false;
+
+        } catch (ExecutionException e) {
+            log.error(e);
+            problems.add("Unexpected error while exporting the selected images: " + e.getCause());
             return false;
 
         } finally {
-            channelExec.disconnect();
+            executor.shutdownNow();
         }
 
-        return true;
+        return !failed.get();
     }
 
+    // ================= INCREMENTAL EXPORT ================= //
     /**
-     * export the image via scp
+     * read the manifest of the last export into the target folder
      * 
      * @param processId id of the Goobi process
-     * @param image Image object that should be exported
-     * @param targetFolderPath path to the targeted folder
-     * @return true if the image is successfully exported via scp, false otherwise
+     * @param transport ExportTransport used to read the manifest
+     * @return the manifest of the last export, or an empty manifest if there is none or if it cannot be read
      */
-    private boolean exportImageUsingScp(int processId, Path image, Path targetFolderPath) {
-        log.debug("exporting image using scp");
-
-        String imageName = image.getFileName().toString();
-        String imageSourcePath = image.toString();
-        String imageTargetPath = targetFolderPath.resolve(imageName).toString();
+    private ExportManifest readManifest(int processId, ExportTransport transport) {
+        Path manifestPath = targetFolderPath.resolve(ExportManifest.FILE_NAME);
+        try {
+            if (transport.getFileSize(manifestPath) < 0) {
+                log.debug("no manifest found in " + targetFolderPath + ", all selected images will be exported");
+                return new ExportManifest();
+            }
+            try (InputStream in = transport.readFile(manifestPath);
+                    Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return ExportManifest.read(reader);
+            }
 
-        return exportFileUsingScp(processId, imageName, imageSourcePath, imageTargetPath);
+        } catch (IOException e) {
+            String message = "Cannot read the manifest of the last export, all selected images will be exported: " + e.getMessage();
+            logBoth(processId, LogType.WARN, message);
+            return new ExportManifest();
+        }
     }
 
     /**
-     * validate all necessary fields for the export via scp
+     * write the manifest into the target folder
      * 
      * @param processId id of the Goobi process
-     * @return true if all necessary fields for the export via scp are valid, false otherwise
+     * @param transport ExportTransport used to write the manifest
+     * @return true if the manifest is successfully written, false otherwise
      */
-    private boolean checkFieldsForScp(int processId) {
-        String message = "";
-        if (StringUtils.isBlank(knownHosts)) {
-            knownHosts = System.getProperty("user.home").concat("/.ssh/known_hosts");
-        }
-        if (StringUtils.isBlank(scpLogin)) {
-            message += "scpLogin should not be blank. ";
-        }
-        if (StringUtils.isBlank(scpPassword)) {
-            message += "scpPassword should not be blank. ";
-        }
-        if (StringUtils.isBlank(scpHostname)) {
-            message += "scpHostname should not be blank. ";
-        }
+    private boolean writeManifest(int processId, ExportTransport transport) {
+        Path manifestPath = targetFolderPath.resolve(ExportManifest.FILE_NAME);
+        try (Writer writer = new OutputStreamWriter(transport.writeFile(manifestPath), StandardCharsets.UTF_8)) {
+            manifest.write(writer);
+            return true;
 
-        if (StringUtils.isNotBlank(message)) {
+        } catch (IOException e) {
+            String message = "Failed to write the manifest of the export: " + e.getMessage();
             logBoth(processId, LogType.ERROR, message);
             return false;
         }
+    }
 
-        return true;
+    /**
+     * get the images that changed since the last export, that were not exported at all, or that are missing in the target folder
+     * 
+     * @param transport ExportTransport used to check the target folder
+     * @param images all selected images
+     * @return the selected images that need to be exported
+     */
+    private Collection<Path> getChangedImages(ExportTransport transport, Collection<Path> images) {
+        List<Path> changedImages = new ArrayList<>();
+        for (Path image : images) {
+            String imageName = image.getFileName().toString();
+            try {
+                long size = storageProvider.getFileSize(image);
+                // an image that was deleted or cut off in the target folder must be exported again
+                if (!manifest.isUnchanged(imageName, size, storageProvider.getLastModifiedDate(image))
+                        || transport.getFileSize(targetFolderPath.resolve(imageName)) != size) {
+                    changedImages.add(image);
+                }
+            } catch (IOException e) {
+                // let the export itself report the problem
+                changedImages.add(image);
+            }
+        }
+        log.debug((images.size() - changedImages.size()) + " unchanged images are skipped");
+        return changedImages;
     }
-    // =============== // EXPORT USING SCP // =============== //
 
-    // ================= EXPORT LOCALLY ================= //
     /**
-     * export all selected images locally
+     * delete the images that are listed in the manifest but not selected anymore
      * 
      * @param processId id of the Goobi process
-     * @param selectedImagesMap map between selected Image objects and their orders among all selected
-     * @return true if all selected images are successfully exported, false otherwise
+     * @param transport ExportTransport used to delete the images
+     * @param images all selected images
+     * @return true if all deselected images are successfully deleted, false otherwise
      */
-    private boolean exportSelectedImagesLocally(int processId, Map<Path, Integer> selectedImagesOrderMap) {
-        // create folders if necessary
-        boolean success = createFoldersLocally(processId, targetFolderPath);
+    private boolean deleteDeselectedImages(int processId, ExportTransport transport, Collection<Path> images) {
+        Set<String> selectedNames = new HashSet<>();
+        for (Path image : images) {
+            selectedNames.add(image.getFileName().toString());
+        }
 
-        // copy all selected images to targetFolderPath
-        for (Path image : selectedImagesOrderMap.keySet()) {
-            success = success && exportImageLocally(processId, image, targetFolderPath);
+        for (String imageName : manifest.getNames()) {
+            if (selectedNames.contains(imageName)) {
+                continue;
+            }
+            try {
+                transport.deleteFile(targetFolderPath.resolve(imageName));
+                manifest.remove(imageName);
+                log.debug("deleted deselected image " + imageName);
+
+            } catch (IOException e) {
+                String message = "Failed to delete the deselected image '" + imageName + "': " + e.getMessage();
+                logBoth(processId, LogType.ERROR, message);
+                return false;
+            }
         }
+        return true;
+    }
 
-        return success;
+    /**
+     * add an exported image to the manifest
+     * 
+     * @param image Image object that was exported
+     * @return always true, since the image itself is exported even if it could not be added to the manifest
+     */
+    private boolean addToManifest(Path image) {
+        String imageName = image.getFileName().toString();
+        try {
+            long size = storageProvider.getFileSize(image);
+            long lastModified = storageProvider.getLastModifiedDate(image);
+            manifest.put(new ExportManifest.Entry(imageName, size, lastModified));
+
+        } catch (IOException e) {
+            // the image will simply be exported again next time
+            log.warn("Failed to add the image '" + imageName + "' to the manifest: " + e.getMessage());
+        }
+        return true;
     }
+    // =============== // INCREMENTAL EXPORT // =============== //
 
+    // ================= RESUMABLE EXPORT ================= //
     /**
-     * create folders locally
+     * open the checkpoint journal of the process, continuing it if the last export into the same target was aborted
      * 
-     * @param processId id of the Goobi process
-     * @param folderPath path to the folder that should be created
-     * @return true if the folder is successfully created, false if any IOException should happen
+     * @param process Goobi process
+     * @return true if the journal could be opened, false otherwise
      */
-    private boolean createFoldersLocally(int processId, Path folderPath) {
+    private boolean openCheckpoint(Process process) {
         try {
-            // no exception will be thrown if the directories are already there, hence no need to check
-            storageProvider.createDirectories(folderPath);
+            Path file = Path.of(process.getProcessDataDirectory(), ExportCheckpoint.FILE_NAME);
+            checkpoint = ExportCheckpoint.open(file, getFolderKey(targetFolderPath));
             return true;
-        } catch (IOException e) {
-            String message = "IOException caught while trying to create the directories locally under " + folderPath.toString();
-            logBoth(processId, LogType.ERROR, message);
+        } catch (IOException | SwapException e) {
+            String message = "Failed to open the checkpoint journal: " + e.getMessage();
+            logBoth(process.getId(), LogType.ERROR, message);
             return false;
         }
     }
 
     /**
-     * export the image locally
+     * close the checkpoint journal, which is deleted if the export has finished successfully
      * 
      * @param processId id of the Goobi process
-     * @param image Image object that is to be exported
-     * @param targetFolderPath path to the targeted folder
-     * @return true if the image is successfully exported, false otherwise
+     * @param success whether or not the export has finished successfully
      */
-    private boolean exportImageLocally(int processId, Path image, Path targetFolderPath) {
-        String imageName = image.getFileName().toString();
-        Path imageSourcePath = image;
-        Path imageTargetPath = targetFolderPath.resolve(imageName);
+    private void closeCheckpoint(int processId, boolean success) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            if (success) {
+                checkpoint.delete();
+            } else {
+                checkpoint.close();
+            }
+        } catch (IOException e) {
+            String message = "Failed to delete the checkpoint journal: " + e.getMessage();
+            logBoth(processId, LogType.WARN, message);
+        }
+        checkpoint = null;
+    }
 
+    /**
+     * get the images that were not completely exported by the last run yet
+     * 
+     * @param processId id of the Goobi process
+     * @param transport ExportTransport used to check the images in the target folder
+     * @param images paths to all images that should be exported
+     * @param imageSizes map between paths of the images and their current sizes
+     * @return paths to the images that still need to be exported
+     */
+    private Collection<Path> getUnfinishedImages(int processId, ExportTransport transport, Collection<Path> images, Map<Path, Long> imageSizes) {
+        List<Path> unfinishedImages = new ArrayList<>();
+        for (Path image : images) {
+            String imageName = image.getFileName().toString();
+            Long completedSize = checkpoint.getCompletedSize(imageName);
+            // the source must not have changed, and the target must still be complete
+            if (completedSize == null || completedSize.longValue() != imageSizes.get(image)
+                    || !isCompleteInTarget(transport, imageName, completedSize)) {
+                unfinishedImages.add(image);
+            }
+        }
+        if (unfinishedImages.size() < images.size()) {
+            String message = "Continuing the last export, " + (images.size() - unfinishedImages.size()) + " images were already exported.";
+            logBoth(processId, LogType.INFO, message);
+        }
+        return unfinishedImages;
+    }
+
+    /**
+     * check whether an image in the target folder has the expected size
+     * 
+     * @param transport ExportTransport used to check the image
+     * @param imageName file name of the image
+     * @param size expected size in bytes
+     * @return true if the image exists with this size, false otherwise
+     */
+    private boolean isCompleteInTarget(ExportTransport transport, String imageName, long size) {
         try {
-            storageProvider.copyFile(imageSourcePath, imageTargetPath);
-            return true;
+            return transport.getFileSize(targetFolderPath.resolve(imageName)) == size;
         } catch (IOException e) {
-            String message = "IOException caught while trying to copy the image named " + imageName + " locally";
-            logBoth(processId, LogType.ERROR, message);
+            log.debug("Cannot determine the size of " + imageName + " in the target folder: " + e.getMessage());
             return false;
         }
     }
 
-    // =============== // EXPORT LOCALLY // =============== //
+    /**
+     * record an image in the checkpoint journal, which may only fail the next run to skip it
+     * 
+     * @param image path to the image that was exported
+     * @param size size of the image in bytes
+     * @return always true, since the image itself was exported
+     */
+    private boolean addToCheckpoint(Path image, long size) {
+        try {
+            checkpoint.add(image.getFileName().toString(), size);
+        } catch (IOException e) {
+            log.warn("Failed to record " + image.getFileName() + " in the checkpoint journal: " + e.getMessage());
+        }
+        return true;
+    }
+    // =============== // RESUMABLE EXPORT // =============== //
 
     // =============== GENERATE AND EXPORT METS FILE =============== //
     /**
-     * generate and export the mets file
+     * generate and export the mets file, the filtered document is written straight into the target folder
      * 
      * @param process Goobi process
+     * @param transport ExportTransport used to export the mets file
      * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
      * @return true if the mets file is successfully exported, false otherwise
      */
-    private boolean exportMetsFile(Process process, Map<String, Integer> selectedImagesNamesOrderMap) {
+    private boolean exportMetsFile(Process process, ExportTransport transport, Map<String, Integer> selectedImagesNamesOrderMap) {
+        log.debug("generating Mets file");
         // folders should already be created while trying to copy the image files, hence no need to create them again
-        boolean metsFileGenerated = generateMetsFile(process, selectedImagesNamesOrderMap);
-        if (!metsFileGenerated) {
-            return false;
+        Path targetPath = targetFolderPath.resolve(METS_FILE_NAME);
+
+        if (METS_FILTER_STAX.equals(metsFilter)) {
+            return exportMetsFileUsingStax(process, transport, targetPath, selectedImagesNamesOrderMap);
+        }
+        if (METS_FILTER_UGH.equals(metsFilter)) {
+            return exportMetsFileUsingUgh(process.getId(), transport, targetPath, selectedImagesNamesOrderMap);
         }
 
-        try {
-            String processDataDirectory = process.getProcessDataDirectory();
-            Path sourcePath = Path.of(processDataDirectory, TEMP_FILE_NAME);
-            Path targetPath = targetFolderPath.resolve(METS_FILE_NAME);
+        String message = "Unknown METS filter '" + metsFilter + "', please use one of ugh or stax.";
+        logBoth(process.getId(), LogType.ERROR, message);
+        return false;
+    }
 
-            if (useScp) {
-                return exportFileUsingScp(process.getId(), TEMP_FILE_NAME, sourcePath.toString(), targetPath.toString());
+    /**
+     * filter the metadata read at the beginning of the export using UGH and write it as mets file
+     * 
+     * @param processId id of the Goobi process
+     * @param transport ExportTransport used to export the mets file
+     * @param targetPath path to the mets file in the target folder
+     * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
+     * @return true if the mets file is successfully exported, false otherwise
+     */
+    private boolean exportMetsFileUsingUgh(int processId, ExportTransport transport, Path targetPath,
+            Map<String, Integer> selectedImagesNamesOrderMap) {
+        try {
+            // the metadata read at the beginning of the export is filtered in place, it is never saved back into the process
+            DigitalDocument dd = fileformat.getDigitalDocument();
+
+            // physical structure and file set
+            MetsDocumentFilter.filter(prefs, dd, selectedImagesNamesOrderMap);
+
+            // UGH can only write into files, hence a local target is written directly
+            Path localPath = transport.getLocalPath(targetPath);
+            if (localPath != null) {
+                // a previous export in a link mode may have left a link here, which must not be written through
+                transport.deleteFile(targetPath);
+                writeMetsFile(localPath);
+                return true;
             }
 
-            // otherwise, export locally
-            storageProvider.copyFile(sourcePath, targetPath);
+            // otherwise use a temporary file of this export only, so that concurrent exports of the same process do not overwrite each other's
+            Path tempFile = Files.createTempFile("mets_", ".xml");
+            try {
+                writeMetsFile(tempFile);
+                transport.exportFile(tempFile, targetPath);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
             return true;
 
-        } catch (IOException | SwapException e) {
-            String message = "Exceptions happened while trying to export the Mets file via scp.";
-            logBoth(process.getId(), LogType.ERROR, message);
+        } catch (IOException | PreferencesException | WriteException e) {
+            String message = "Errors happened trying to export the Mets file: " + e.getMessage();
+            logBoth(processId, LogType.ERROR, message);
             return false;
         }
     }
 
     /**
-     * generate a temporary mets file in preparation for the export
+     * write the filtered metadata as mets file
+     * 
+     * @param path path to the file that should be written
+     * @throws WriteException if the file could not be written
+     * @throws PreferencesException
+     */
+    private void writeMetsFile(Path path) throws WriteException, PreferencesException {
+        if (!fileformat.write(path.toString())) {
+            throw new WriteException("Failed to write " + path);
+        }
+    }
+
+    /**
+     * stream the metadata file of the process through a filter straight into the mets file in the target folder
      * 
      * @param process Goobi process
+     * @param transport ExportTransport used to export the mets file
+     * @param targetPath path to the mets file in the target folder
      * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
-     * @return true if a temporary mets file is successfully generated, false otherwise
+     * @return true if the mets file is successfully exported, false otherwise
      */
-    private boolean generateMetsFile(Process process, Map<String, Integer> selectedImagesNamesOrderMap) {
-        log.debug("generating Mets file");
-        try {
-            Prefs prefs = process.getRegelsatz().getPreferences();
-            Fileformat ff = process.readMetadataFile();
-            DigitalDocument dd = ff.getDigitalDocument();
-
-            // physical structure
-            processPhysicalStructure(prefs, dd, selectedImagesNamesOrderMap);
-
-            // file set
-            processFileSet(dd, selectedImagesNamesOrderMap);
-
-            // generate temporary mets file
-            process.saveTemporaryMetsFile(ff);
-
+    private boolean exportMetsFileUsingStax(Process process, ExportTransport transport, Path targetPath,
+            Map<String, Integer> selectedImagesNamesOrderMap) {
+        try (InputStream in = storageProvider.newInputStream(Paths.get(process.getMetadataFilePath()));
+                OutputStream out = transport.writeFile(targetPath)) {
+            MetsStreamFilter.filter(in, out, selectedImagesNamesOrderMap);
             return true;
 
-        } catch (ReadException | IOException | SwapException | PreferencesException | WriteException e) {
-            String message = "Errors happened trying to generate the Mets file.";
+        } catch (IOException | SwapException | XMLStreamException e) {
+            String message = "Errors happened trying to export the Mets file: " + e.getMessage();
             logBoth(process.getId(), LogType.ERROR, message);
             return false;
         }
     }
 
+    // =============== // GENERATE AND EXPORT METS FILE // =============== //
+
+    // =============== EXPORT SELECTION FILE =============== //
     /**
-     * filter out information of unselected images from the physical structure
+     * write the names of the exported images together with their orders among all selected into the target folder
      * 
-     * @param prefs
-     * @param dd DigitalDocument
-     * @param selectedImagesNamesOrderMap map between names of selected images and their orders among all selected
+     * @param processId id of the Goobi process
+     * @param transport ExportTransport used to write the file
+     * @param selectedImagesOrderMap map between paths of the selected images and their orders among all selected
+     * @return true if the file is successfully written, false otherwise
      */
-    private void processPhysicalStructure(Prefs prefs, DigitalDocument dd, Map<String, Integer> selectedImagesNamesOrderMap) {
-        DocStruct physical = dd.getPhysicalDocStruct();
-
-        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
-
-        List<DocStruct> children = new ArrayList<>(physical.getAllChildren());
-        for (DocStruct child : children) {
-            String imageName = child.getImageName(); // 00000023.jpg
+    private boolean exportSelectionFile(int processId, ExportTransport transport, Map<Path, Integer> selectedImagesOrderMap) {
+        List<Map.Entry<Path, Integer>> entries = new ArrayList<>(selectedImagesOrderMap.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+
+        try (JsonWriter writer = new JsonWriter(
+                new OutputStreamWriter(transport.writeFile(targetFolderPath.resolve(SELECTION_FILE_NAME)), StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            for (Map.Entry<Path, Integer> entry : entries) {
+                writer.name(entry.getKey().getFileName().toString()).value(entry.getValue());
+            }
+            writer.endObject();
+            return true;
 
-            List<Reference> fromReferences = new ArrayList<>(child.getAllFromReferences());
-            for (Reference reference : fromReferences) {
-                DocStruct source = reference.getSource();
-                DocStruct target = reference.getTarget();
-                String targetImageName = target.getImageName(); // 00000023.jpg, 00000023.jpg
+        } catch (IOException e) {
+            String message = "Failed to write the file " + SELECTION_FILE_NAME + ": " + e.getMessage();
+            logBoth(processId, LogType.ERROR, message);
+            return false;
+        }
+    }
+    // =============== // EXPORT SELECTION FILE // =============== //
 
-                if (!selectedImagesNamesOrderMap.containsKey(targetImageName)) {
-                    source.removeReferenceTo(target);
-                    target.removeReferenceFrom(source);
-                }
-            }
+    // ================= TRANSPORTS ================= //
+    /**
+     * create the ExportTransport that is configured for the current export run
+     * 
+     * @param processId id of the Goobi process
+     * @return ExportTransport object, or null if the configuration does not allow to create one
+     */
+    private ExportTransport createTransport(int processId) {
+        ExportTransport targetTransport = createTargetTransport(processId);
+        if (targetTransport == null || ArchiveExportTransport.FORMAT_NONE.equals(archiveFormat)) {
+            return targetTransport;
+        }
 
-            if (selectedImagesNamesOrderMap.containsKey(imageName)) {
-                // update physical order of the image page
-                Metadata physPage = child.getAllMetadataByType(typePhysPage).get(0);
-                physPage.setValue(selectedImagesNamesOrderMap.get(imageName).toString());
-            } else {
-                physical.removeChild(child);
+        // an archive is written from scratch every time, hence there is nothing to compare with or to continue
+        String message = null;
+        if (incrementalExport) {
+            message = "An incremental export cannot be written into an archive.";
+        } else if (resumableExport) {
+            message = "A resumable export cannot be written into an archive.";
+        }
+        try {
+            if (message == null) {
+                return new ArchiveExportTransport(storageProvider, targetTransport, targetFolderPath.resolve(archiveName), archiveFormat,
+                        archiveCompressionLevel, archiveStoreCompressedImages);
             }
+        } catch (IllegalArgumentException e) {
+            message = e.getMessage();
         }
+        logBoth(processId, LogType.ERROR, message);
+        targetTransport.close();
+        return null;
     }
 
     /**
-     * filter out information of unselected images from the file set
+     * create the ExportTransport that reaches the target folder
      * 
-     * @param dd DigitalDocument
-     * @param selectedImagesNamesOrderMap map between selected Image objects and their orders among all selected
+     * @param processId id of the Goobi process
+     * @return ExportTransport object, or null if the configuration does not allow to create one
      */
-    private void processFileSet(DigitalDocument dd, Map<String, Integer> selectedImagesNamesOrderMap) {
-        FileSet fileSet = dd.getFileSet();
-        List<ContentFile> contentFiles = new ArrayList<>(fileSet.getAllFiles());
-        for (ContentFile file : contentFiles) {
-            boolean shouldRemove = false;
-            List<DocStruct> referenced = file.getReferencedDocStructs();
-            for (DocStruct ds : referenced) {
-                String referencedImageName = ds.getImageName(); // 00000023.jpg
-                if (!selectedImagesNamesOrderMap.containsKey(referencedImageName)) {
-                    shouldRemove = true;
+    private ExportTransport createTargetTransport(int processId) {
+        switch (transport) {
+            case TRANSPORT_LOCAL:
+                try {
+                    return new LocalExportTransport(storageProvider, localExportMode);
+                } catch (IllegalArgumentException e) {
+                    logBoth(processId, LogType.ERROR, e.getMessage());
+                    return null;
                 }
-            }
-            if (shouldRemove) {
-                fileSet.removeFile(file);
-            }
+            case TRANSPORT_SCP:
+                if (!checkFieldsForScp(processId) || !connect(processId)) {
+                    return null;
+                }
+                return new ScpExportTransport(getSshConnection(), scpBatchTransfer, scpBufferSize);
+            case TRANSPORT_SFTP:
+                if (!checkFieldsForScp(processId) || !connect(processId)) {
+                    return null;
+                }
+                return new SftpExportTransport(getSshConnection(), sftpBulkRequests);
+            default:
+                String message = "Unknown transport '" + transport + "', please use one of local, scp or sftp.";
+                logBoth(processId, LogType.ERROR, message);
+                return null;
         }
     }
 
-    // =============== // GENERATE AND EXPORT METS FILE // =============== //
     /**
-     * export a file via scp
+     * complete the archive if all files are written into one
      * 
      * @param processId id of the Goobi process
-     * @param fileName name of the file that should be exported via scp
-     * @param sourcePath source path of the to be exported file
-     * @param targetPath target path of the to be exported file
-     * @return true if the export succeeds, false otherwise
-     */
-    private boolean exportFileUsingScp(int processId, String fileName, String sourcePath, String targetPath) {
-        ChannelExec channelExec = getChannelExec(processId);
-        if (channelExec == null) {
+     * @param transport ExportTransport of the export run
+     * @return true if there is no archive or if it is successfully completed, false otherwise
+     */
+    private boolean finishArchive(int processId, ExportTransport transport) {
+        if (!(transport instanceof ArchiveExportTransport)) {
+            return true;
+        }
+        try {
+            ((ArchiveExportTransport) transport).finish();
+            return true;
+        } catch (IOException e) {
+            String message = "Failed to complete the archive " + archiveName + ": " + e.getMessage();
+            logBoth(processId, LogType.ERROR, message);
             return false;
         }
+    }
 
-        targetPath = targetPath.replace("'", "'\"'\"'");
-        targetPath = "'" + targetPath + "'";
-
-        String command = "scp " + " -t " + targetPath;
-        log.debug("command = " + command);
-        channelExec.setCommand(command);
-
-        try (OutputStream out = channelExec.getOutputStream();
-                InputStream in = channelExec.getInputStream()) {
-
-            channelExec.connect();
-            log.debug("channel connected, starting to export");
-
-            String ackFailureMessage = "Ack check failed while trying to export file using scp. Aborting.";
-            if (checkAck(in) != 0) {
-                logBoth(processId, LogType.ERROR, ackFailureMessage);
-                return false;
-            }
-
-            // send "C0644 fileSize fileName", where fileName should not include '/'
-            File file = new File(sourcePath);
-            long fileSize = file.length();
-            command = "C0644 " + fileSize + " " + fileName + "\n";
-            out.write(command.getBytes());
-            out.flush();
-            if (checkAck(in) != 0) {
-                logBoth(processId, LogType.ERROR, ackFailureMessage);
-                return false;
-            }
-
-            // send content of file
-            byte[] buf = new byte[1024];
-            try (FileInputStream fis = new FileInputStream(file)) {
-                while (true) {
-                    int len = fis.read(buf, 0, buf.length);
-                    if (len <= 0) {
-                        break;
-                    }
-                    out.write(buf, 0, len);
-                }
-            }
-
-            // send '\0'
-            buf[0] = 0;
-            out.write(buf, 0, 1);
-            out.flush();
-            if (checkAck(in) != 0) {
-                logBoth(processId, LogType.ERROR, ackFailureMessage);
-                return false;
-            }
+    /**
+     * validate all necessary fields for the export via scp or sftp
+     * 
+     * @param processId id of the Goobi process
+     * @return true if all necessary fields for the export via scp or sftp are valid, false otherwise
+     */
+    private boolean checkFieldsForScp(int processId) {
+        String message = "";
+        if (StringUtils.isBlank(knownHosts)) {
+            knownHosts = System.getProperty("user.home").concat("/.ssh/known_hosts");
+        }
+        if (StringUtils.isBlank(scpLogin)) {
+            message += "scpLogin should not be blank. ";
+        }
+        if (StringUtils.isBlank(scpPassword)) {
+            message += "scpPassword should not be blank. ";
+        }
+        if (StringUtils.isBlank(scpHostname)) {
+            message += "scpHostname should not be blank. ";
+        }
 
-        } catch (JSchException | IOException e) {
-            String message = "Failed to export image '" + fileName + "'";
+        if (StringUtils.isNotBlank(message)) {
             logBoth(processId, LogType.ERROR, message);
             return false;
-
-        } finally {
-            channelExec.disconnect();
         }
 
         return true;
     }
 
     /**
-     * get a ChannelExec to perform an export via scp
+     * establish the ssh session before the first transfer, so that the time of the handshake can be told apart from the transfers
      * 
      * @param processId id of the Goobi process
-     * @return ChannelExec object
+     * @return true if the session is established, false otherwise
      */
-    private ChannelExec getChannelExec(int processId) {
+    private boolean connect(int processId) {
+        long start = System.nanoTime();
         try {
-            JSch jsch = new JSch();
-            jsch.setKnownHosts(knownHosts);
-            Session jschSession = jsch.getSession(scpLogin, scpHostname);
-            jschSession.setPassword(scpPassword);
-            jschSession.connect();
-
-            return (ChannelExec) jschSession.openChannel("exec");
-
+            getSshConnection().getSession();
+            return true;
         } catch (JSchException e) {
-            String message = "Failed to set up Jsch.";
+            String message = "Failed to connect to " + scpHostname + ": " + e.getMessage();
             logBoth(processId, LogType.ERROR, message);
-            e.printStackTrace();
-            return null;
+            return false;
+        } finally {
+            metrics.addTime(ExportMetrics.PHASE_CONNECT, start);
         }
     }
 
     /**
-     * get the XML configuration of this plugin
+     * get the ssh connection of the current export run, creating it if necessary
      * 
-     * @return the XMLConfiguration of this plugin
+     * @return SshConnection object
      */
-    private XMLConfiguration getXMLConfig() {
-        XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(title);
-        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
-        xmlConfig.setReloadingStrategy(new FileChangedReloadingStrategy());
+    private synchronized SshConnection getSshConnection() {
+        if (sharedResources != null) {
+            // the shared connection stays open for the following exports of the batch
+            return sharedResources.getSshConnection(scpHostname, scpLogin, scpPassword, knownHosts);
+        }
+        if (sshConnection == null) {
+            sshConnection = new SshConnection(scpHostname, scpLogin, scpPassword, knownHosts);
+        }
+        return sshConnection;
+    }
 
-        return xmlConfig;
+    /**
+     * close the ssh connection of the current export run, if there is any
+     */
+    private synchronized void closeSshConnection() {
+        if (sshConnection != null) {
+            sshConnection.close();
+            sshConnection = null;
+        }
     }
+    // =============== // TRANSPORTS // =============== //
 
     /**
-     * get the SubnodeConfiguration of the current process
+     * write log message into both terminal and Journal, during an export errors are written into the journal at once and all others at the end
      * 
-     * @param process Goobi process
-     * @return SubnodeConfiguration object according to the project's name
+     * @param processId id of the Goobi process
+     * @param logType
+     * @param message message to be shown to both terminal and journal
      */
-    private SubnodeConfiguration getConfig(Process process) {
-        String projectName = process.getProjekt().getTitel();
-        log.debug("projectName = " + projectName);
-        XMLConfiguration xmlConfig = getXMLConfig();
-        SubnodeConfiguration conf = null;
-
-        // order of configuration is:
-        // 1.) project name matches
-        // 2.) project is *
-        try {
-            conf = xmlConfig.configurationAt("//config[./project = '" + projectName + "']");
-        } catch (IllegalArgumentException e) {
-            conf = xmlConfig.configurationAt("//config[./project = '*']");
+    private void logBoth(int processId, LogType logType, String message) {
+        logTerminal(logType, message);
+        ExportJournal currentJournal = journal;
+        if (currentJournal == null) {
+            if (processId > 0) {
+                Helper.addMessageToProcessJournal(processId, logType, LOG_PREFIX + message);
+            }
+        } else if (logType == LogType.ERROR) {
+            currentJournal.addCritical(logType, message);
+        } else {
+            currentJournal.add(logType, message);
         }
-
-        return conf;
     }
 
     /**
-     * write log message into both terminal and Journal
+     * write log message concerning a single image into both terminal and Journal, during an export it is written into the journal at the end
+     * together with the messages of all other images, even if it is an error
      * 
      * @param processId id of the Goobi process
      * @param logType
      * @param message message to be shown to both terminal and journal
      */
-    private void logBoth(int processId, LogType logType, String message) {
-        String logMessage = "Selected Images Export Plugin: " + message;
+    private void logImage(int processId, LogType logType, String message) {
+        ExportJournal currentJournal = journal;
+        if (currentJournal == null) {
+            logBoth(processId, logType, message);
+        } else {
+            logTerminal(logType, message);
+            currentJournal.add(logType, message);
+        }
+    }
+
+    /**
+     * write log message into the terminal
+     * 
+     * @param logType
+     * @param message message to be shown
+     */
+    private void logTerminal(LogType logType, String message) {
+        String logMessage = LOG_PREFIX + message;
         switch (logType) {
             case ERROR:
                 log.error(logMessage);
@@ -766,46 +1429,5 @@ public class SelectedImagesExportPlugin implements IExportPlugin, IPlugin {
                 log.info(logMessage);
                 break;
         }
-        if (processId > 0) {
-            Helper.addMessageToProcessJournal(processId, logType, logMessage);
-        }
-    }
-
-    /**
-     * check the ack value returned by the server
-     * 
-     * @param in InputStream
-     * @return response from the server
-     * @throws IOException
-     */
-    private static int checkAck(InputStream in) throws IOException {
-        // To every command sent by the client, the server responds with a single-byte "ack", where:
-        int b = in.read();
-        // b may be 0 for success,
-        //          1 for error,
-        //          2 for fatal error,
-        //          -1
-
-        if (b == 1 || b == 2) {
-            StringBuilder sb = new StringBuilder();
-            int c;
-            do {
-                c = in.read();
-                sb.append((char) c);
-            } while (c != '\n');
-
-            String message = "";
-            if (b == 1) { // error
-                message = "Error happened trying to export file using scp: " + sb.toString();
-            }
-            if (b == 2) { // fatal error
-                message = "Fatal error happened trying to export file using scp: " + sb.toString();
-            }
-            if (StringUtils.isNotBlank(message)) {
-                log.error(message);
-            }
-        }
-
-        return b;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Parser of the process property that holds the selected images, i.e. a JSON object like {"00000001.jpg":1,"00000005.jpg":2}.
+ *
+ * The value is read in one pass by a streaming JsonReader, so that names containing commas, colons or escaped quotes are read correctly.
+ */
+public class SelectedImagesPropertyParser {
+
+    private SelectedImagesPropertyParser() {
+    }
+
+    /**
+     * parse the value of the property
+     *
+     * @param value value of the property, may be blank if nothing is selected
+     * @return map between names of selected images and their orders among all selected, in the order of the property value
+     * @throws IOException if the value is not a JSON object mapping names to integer orders
+     */
+    public static Map<String, Integer> parse(String value) throws IOException {
+        if (StringUtils.isBlank(value)) {
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, Integer> selectedImagesNamesOrderMap = new LinkedHashMap<>(getExpectedCapacity(value));
+        try (JsonReader reader = new JsonReader(new StringReader(value))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String imageName = reader.nextName();
+                if (StringUtils.isBlank(imageName)) {
+                    throw new IOException("Empty image name at " + reader.getPath());
+                }
+                // nextInt also accepts orders that are given as strings, and fails on fractions
+                selectedImagesNamesOrderMap.put(imageName, reader.nextInt());
+            }
+            reader.endObject();
+
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Unexpected content after the end of the selection at " + reader.getPath());
+            }
+
+        } catch (IllegalStateException | NumberFormatException e) {
+            // thrown by JsonReader for unexpected tokens and for orders that are no integers
+            throw new IOException(e.getMessage(), e);
+        }
+
+        return selectedImagesNamesOrderMap;
+    }
+
+    /**
+     * estimate the capacity needed for all entries of the value, without creating any intermediate objects
+     *
+     * @param value value of the property
+     * @return initial capacity of a map that will not need to grow
+     */
+    private static int getExpectedCapacity(String value) {
+        int entries = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == ',') {
+                entries++;
+            }
+        }
+        return (int) (entries / 0.75f) + 1;
+    }
+}
@@ -12,24 +12,38 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 
+/**
+ * Serializer of the legacy format, which embeds the images as one string into the JSON object. SelectedImagesTypeAdapter writes the same
+ * format as well as one with a real JSON array, without building a tree first.
+ */
 public class SelectedImagesSerializer implements JsonSerializer<SelectedImages> {
     private static String images = "images";
     private static String herisId = "HERIS-ID";
 
+    // the names of the properties are read on every call, hence one instance can be shared
+    private static final Gson PROPERTIES_GSON = new GsonBuilder().registerTypeAdapter(SelectedImageProperties.class,
+            new SelectedImagePropertiesSerializer()).setPrettyPrinting().serializeNulls().create();
+
     @Override
     public JsonElement serialize(SelectedImages src, Type typeOfSrc, JsonSerializationContext context) {
         final JsonObject jsonObject = new JsonObject();
 
-        List<SelectedImageProperties> propertiesList = src.getImages();
+        jsonObject.addProperty(images, toLegacyString(src.getImages()));
+        jsonObject.addProperty(herisId, src.getHerisId());
 
-        final GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(SelectedImageProperties.class, new SelectedImagePropertiesSerializer());
-        gsonBuilder.setPrettyPrinting();
-        final Gson gson = gsonBuilder.serializeNulls().create();
+        return jsonObject;
+    }
 
+    /**
+     * serialize the properties of all images into one string, as used by the legacy format
+     * 
+     * @param propertiesList properties of the selected images
+     * @return pretty printed JSON array as string
+     */
+    static String toLegacyString(List<SelectedImageProperties> propertiesList) {
         StringBuilder sb = new StringBuilder("[\n");
         for (SelectedImageProperties property : propertiesList) {
-            sb.append(gson.toJson(property));
+            sb.append(PROPERTIES_GSON.toJson(property));
             sb.append(",\n");
         }
         if (sb.length() > 2) {
@@ -37,11 +51,15 @@ public class SelectedImagesSerializer implements JsonSerializer<SelectedImages>
             sb.deleteCharAt(sb.lastIndexOf(","));
         }
         sb.append("]");
+        return sb.toString();
+    }
 
-        jsonObject.addProperty(images, sb.toString());
-        jsonObject.addProperty(herisId, src.getHerisId());
+    static String getImagesPropertyName() {
+        return images;
+    }
 
-        return jsonObject;
+    static String getHerisIdPropertyName() {
+        return herisId;
     }
 
     public static void setImages(String images) {
@@ -0,0 +1,162 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming writer and reader of SelectedImages, which writes every property straight into the output.
+ *
+ * By default the images are written as a real JSON array. The legacy format, which embeds the pretty printed array as one string, can still
+ * be chosen. Both formats can be read. The names of all properties are the ones configured in SelectedImagesSerializer and
+ * SelectedImagePropertiesSerializer.
+ */
+public class SelectedImagesTypeAdapter extends TypeAdapter<SelectedImages> {
+
+    private static final Gson GSON = createGson(false);
+    private static final Gson LEGACY_GSON = createGson(true);
+
+    private final boolean legacyFormat;
+
+    /**
+     * constructor
+     * 
+     * @param legacyFormat true to embed the images as one string, false to write them as a JSON array
+     */
+    public SelectedImagesTypeAdapter(boolean legacyFormat) {
+        this.legacyFormat = legacyFormat;
+    }
+
+    /**
+     * create a Gson object that uses this adapter for SelectedImages
+     * 
+     * @param legacyFormat true to embed the images as one string, false to write them as a JSON array
+     * @return Gson object, which is thread-safe and may be shared
+     */
+    private static Gson createGson(boolean legacyFormat) {
+        return new GsonBuilder().registerTypeAdapter(SelectedImages.class, new SelectedImagesTypeAdapter(legacyFormat)).serializeNulls().create();
+    }
+
+    /**
+     * get the shared Gson object
+     * 
+     * @param legacyFormat true to embed the images as one string, false to write them as a JSON array
+     * @return Gson object that uses this adapter for SelectedImages
+     */
+    private static Gson getGson(boolean legacyFormat) {
+        return legacyFormat ? LEGACY_GSON : GSON;
+    }
+
+    /**
+     * write SelectedImages into a Writer
+     * 
+     * @param selectedImages SelectedImages object
+     * @param writer Writer, which is neither flushed nor closed
+     * @param legacyFormat true to embed the images as one string, false to write them as a JSON array
+     * @throws IOException if the JSON could not be written
+     */
+    public static void write(SelectedImages selectedImages, Writer writer, boolean legacyFormat) throws IOException {
+        try {
+            getGson(legacyFormat).toJson(selectedImages, SelectedImages.class, writer);
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * serialize SelectedImages into a string
+     * 
+     * @param selectedImages SelectedImages object
+     * @param legacyFormat true to embed the images as one string, false to write them as a JSON array
+     * @return JSON string
+     */
+    public static String toJson(SelectedImages selectedImages, boolean legacyFormat) {
+        return getGson(legacyFormat).toJson(selectedImages, SelectedImages.class);
+    }
+
+    @Override
+    public void write(JsonWriter out, SelectedImages src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(SelectedImagesSerializer.getImagesPropertyName());
+        if (legacyFormat) {
+            out.value(SelectedImagesSerializer.toLegacyString(src.getImages()));
+        } else {
+            out.beginArray();
+            for (SelectedImageProperties properties : src.getImages()) {
+                if (properties == null) {
+                    out.nullValue();
+                } else {
+                    SelectedImagePropertiesSerializer.write(out, properties);
+                }
+            }
+            out.endArray();
+        }
+        out.name(SelectedImagesSerializer.getHerisIdPropertyName()).value(src.getHerisId());
+        out.endObject();
+    }
+
+    @Override
+    public SelectedImages read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        SelectedImages selectedImages = new SelectedImages();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals(SelectedImagesSerializer.getImagesPropertyName())) {
+                // both formats are accepted, regardless of the one this adapter writes
+                if (in.peek() == JsonToken.STRING) {
+                    try (JsonReader legacyReader = new JsonReader(new StringReader(in.nextString()))) {
+                        selectedImages.setImages(readImages(legacyReader));
+                    }
+                } else {
+                    selectedImages.setImages(readImages(in));
+                }
+            } else if (name.equals(SelectedImagesSerializer.getHerisIdPropertyName())) {
+                selectedImages.setHerisId(in.nextInt());
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return selectedImages;
+    }
+
+    /**
+     * read the array of images, empty slots are kept as null
+     * 
+     * @param in JsonReader positioned at the start of the array
+     * @return list of the image properties
+     * @throws IOException if the array could not be read
+     */
+    private static List<SelectedImageProperties> readImages(JsonReader in) throws IOException {
+        List<SelectedImageProperties> images = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                images.add(null);
+            } else {
+                images.add(SelectedImagePropertiesSerializer.read(in));
+            }
+        }
+        in.endArray();
+        return images;
+    }
+}
@@ -0,0 +1,243 @@
+package de.intranda.goobi.plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Export to a remote host using sftp channels of a shared {@link SshConnection}.
+ *
+ * Files are uploaded with up to bulkRequests write requests on the wire at the same time, instead of waiting for every single acknowledgement.
+ * Every thread exporting files uses a channel of its own, idle channels are reused.
+ */
+@Log4j2
+public class SftpExportTransport implements ExportTransport {
+
+    private final SshConnection connection;
+    private final int bulkRequests;
+
+    private final Queue<ChannelSftp> idleChannels = new ConcurrentLinkedQueue<>();
+    private final List<ChannelSftp> openedChannels = new ArrayList<>();
+
+    /**
+     * constructor
+     *
+     * @param connection ssh connection from which all channels are opened
+     * @param bulkRequests maximum number of write requests that may be pending at the same time
+     */
+    public SftpExportTransport(SshConnection connection, int bulkRequests) {
+        this.connection = connection;
+        this.bulkRequests = bulkRequests;
+    }
+
+    @Override
+    public void createFolders(Path folder) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            if (isFolder(channel, folder)) {
+                return;
+            }
+            // create all missing folders from the root on
+            Path current = folder.getRoot();
+            for (Path part : folder) {
+                current = current == null ? part : current.resolve(part);
+                if (!isFolder(channel, current)) {
+                    log.debug("creating remote folder " + current);
+                    channel.mkdir(current.toString());
+                }
+            }
+
+        } catch (SftpException e) {
+            throw new IOException("Failed to create subfolders remotely: " + e.getMessage(), e);
+
+        } finally {
+            releaseChannel(channel);
+        }
+    }
+
+    @Override
+    public void exportFile(Path source, Path target) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            channel.put(source.toString(), target.toString(), ChannelSftp.OVERWRITE);
+
+        } catch (SftpException e) {
+            throw new IOException("Failed to export file using sftp: " + e.getMessage(), e);
+
+        } finally {
+            releaseChannel(channel);
+        }
+    }
+
+    @Override
+    public long getFileSize(Path target) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            SftpATTRS attributes = stat(channel, target);
+            return attributes == null ? -1 : attributes.getSize();
+
+        } finally {
+            releaseChannel(channel);
+        }
+    }
+
+    @Override
+    public InputStream readFile(Path target) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            channel.get(target.toString(), content);
+            return new ByteArrayInputStream(content.toByteArray());
+
+        } catch (SftpException e) {
+            throw new IOException("Failed to read " + target + " remotely: " + e.getMessage(), e);
+
+        } finally {
+            releaseChannel(channel);
+        }
+    }
+
+    @Override
+    public OutputStream writeFile(Path target) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            // the channel is only released once the file is complete
+            return new FilterOutputStream(channel.put(target.toString(), ChannelSftp.OVERWRITE)) {
+                private boolean closed;
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // the channel must only be released once, otherwise two transfers could borrow it at the same time
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    try {
+                        super.close();
+                    } finally {
+                        releaseChannel(channel);
+                    }
+                }
+            };
+
+        } catch (SftpException e) {
+            releaseChannel(channel);
+            throw new IOException("Failed to write " + target + " remotely: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteFile(Path target) throws IOException {
+        ChannelSftp channel = borrowChannel();
+        try {
+            channel.rm(target.toString());
+
+        } catch (SftpException e) {
+            if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw new IOException("Failed to delete " + target + " remotely: " + e.getMessage(), e);
+            }
+
+        } finally {
+            releaseChannel(channel);
+        }
+    }
+
+    @Override
+    public void close() {
+        idleChannels.clear();
+        synchronized (openedChannels) {
+            for (ChannelSftp channel : openedChannels) {
+                channel.disconnect();
+            }
+            openedChannels.clear();
+        }
+    }
+
+    /**
+     * check whether there is a folder at the given remote path
+     *
+     * @param channel connected ChannelSftp
+     * @param path remote path that should be checked
+     * @return true if there is a folder, false if there is nothing
+     * @throws IOException if the path exists but is not a folder, or if it could not be checked
+     */
+    private static boolean isFolder(ChannelSftp channel, Path path) throws IOException {
+        SftpATTRS attributes = stat(channel, path);
+        if (attributes != null && !attributes.isDir()) {
+            throw new IOException(path + " exists remotely but is not a folder.");
+        }
+        return attributes != null;
+    }
+
+    /**
+     * get the attributes of a remote file
+     *
+     * @param channel connected ChannelSftp
+     * @param path remote path of the file
+     * @return SftpATTRS of the file, or null if there is no such file
+     * @throws IOException if the attributes could not be retrieved
+     */
+    private static SftpATTRS stat(ChannelSftp channel, Path path) throws IOException {
+        try {
+            return channel.stat(path.toString());
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw new IOException("Failed to stat " + path + " remotely: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * get an idle channel, or open a new one if there is none
+     *
+     * @return connected ChannelSftp
+     * @throws IOException if no channel could be opened
+     */
+    private ChannelSftp borrowChannel() throws IOException {
+        ChannelSftp channel = idleChannels.poll();
+        if (channel != null && channel.isConnected()) {
+            return channel;
+        }
+        try {
+            channel = connection.openChannelSftp();
+            channel.setBulkRequests(bulkRequests);
+            channel.connect();
+        } catch (JSchException e) {
+            throw new IOException("Failed to set up Jsch.", e);
+        }
+        synchronized (openedChannels) {
+            openedChannels.add(channel);
+        }
+        return channel;
+    }
+
+    /**
+     * put a channel back for reuse
+     *
+     * @param channel ChannelSftp that is not used anymore by the current thread
+     */
+    private void releaseChannel(ChannelSftp channel) {
+        idleChannels.offer(channel);
+    }
+}
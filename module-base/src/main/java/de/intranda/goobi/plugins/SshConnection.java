@@ -0,0 +1,92 @@
+package de.intranda.goobi.plugins;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * One authenticated SSH session to the remote host, from which all channels of an export run are opened.
+ *
+ * The session is connected lazily upon the first request of a channel and stays open until {@link #close()} is called. Channels may be opened
+ * concurrently by several threads.
+ */
+@Log4j2
+public class SshConnection implements AutoCloseable {
+
+    private final String hostname;
+    private final String login;
+    private final String password;
+    private final String knownHosts;
+
+    private Session session;
+
+    /**
+     * constructor
+     *
+     * @param hostname name or ip of the remote host
+     * @param login user name to login to the remote host
+     * @param password password to login to the remote host
+     * @param knownHosts path to the known_hosts file
+     */
+    public SshConnection(String hostname, String login, String password, String knownHosts) {
+        this.hostname = hostname;
+        this.login = login;
+        this.password = password;
+        this.knownHosts = knownHosts;
+    }
+
+    /**
+     * get the connected session, performing the handshake and authentication if this has not happened yet
+     *
+     * @return the connected Session object
+     * @throws JSchException if the session could not be established
+     */
+    public synchronized Session getSession() throws JSchException {
+        if (session == null || !session.isConnected()) {
+            log.debug("opening ssh session to " + hostname);
+            JSch jsch = new JSch();
+            jsch.setKnownHosts(knownHosts);
+            Session newSession = jsch.getSession(login, hostname);
+            newSession.setPassword(password);
+            newSession.connect();
+            session = newSession;
+        }
+        return session;
+    }
+
+    /**
+     * open a new exec channel on the shared session, the channel is not connected yet
+     *
+     * @return ChannelExec object
+     * @throws JSchException if the session could not be established or the channel could not be opened
+     */
+    public ChannelExec openChannelExec() throws JSchException {
+        return (ChannelExec) getSession().openChannel("exec");
+    }
+
+    /**
+     * open a new sftp channel on the shared session, the channel is not connected yet
+     *
+     * @return ChannelSftp object
+     * @throws JSchException if the session could not be established or the channel could not be opened
+     */
+    public ChannelSftp openChannelSftp() throws JSchException {
+        return (ChannelSftp) getSession().openChannel("sftp");
+    }
+
+    /**
+     * disconnect the session, channels that are still open will be closed as well
+     */
+    @Override
+    public synchronized void close() {
+        if (session != null) {
+            log.debug("closing ssh session to " + hostname);
+            session.disconnect();
+            session = null;
+        }
+    }
+}
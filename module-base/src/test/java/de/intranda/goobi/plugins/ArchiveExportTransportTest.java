@@ -0,0 +1,172 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.stream.JsonWriter;
+
+import de.sub.goobi.helper.StorageProviderInterface;
+
+public class ArchiveExportTransportTest {
+
+    private static final List<String> ENTRY_NAMES = Arrays.asList("00000001.tif", "00000002.jpg", "mets.xml", "selection.json");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StorageProviderInterface storageProvider;
+    private Path targetFolder;
+    private Path tif;
+    private Path jpg;
+    private ByteArrayOutputStream archive;
+
+    @Before
+    public void setUp() throws Exception {
+        tif = folder.newFile("00000001.tif").toPath();
+        Files.write(tif, new byte[1000]);
+        jpg = folder.newFile("00000002.jpg").toPath();
+        Files.write(jpg, "jpg content".getBytes(StandardCharsets.UTF_8));
+        targetFolder = folder.newFolder("target").toPath();
+
+        storageProvider = EasyMock.niceMock(StorageProviderInterface.class);
+        EasyMock.expect(storageProvider.getFileSize(EasyMock.anyObject())).andAnswer(() -> Files.size(EasyMock.getCurrentArgument(0))).anyTimes();
+        EasyMock.expect(storageProvider.newInputStream(EasyMock.anyObject()))
+                .andAnswer(() -> Files.newInputStream(EasyMock.getCurrentArgument(0)))
+                .anyTimes();
+        EasyMock.replay(storageProvider);
+        archive = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void testZip() throws Exception {
+        try (ArchiveExportTransport transport = createTransport(ArchiveExportTransport.FORMAT_ZIP)) {
+            writeEntries(transport);
+            transport.finish();
+        }
+
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> methods = new LinkedHashMap<>();
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                methods.put(entry.getName(), entry.getMethod());
+                contents.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        assertEquals(ENTRY_NAMES, names);
+        assertEquals(ZipEntry.DEFLATED, methods.get("00000001.tif").intValue());
+        assertEquals(ZipEntry.STORED, methods.get("00000002.jpg").intValue());
+        assertArrayEquals(Files.readAllBytes(tif), contents.get("00000001.tif"));
+        assertArrayEquals(Files.readAllBytes(jpg), contents.get("00000002.jpg"));
+        assertEquals("<mets/>", new String(contents.get("mets.xml"), StandardCharsets.UTF_8));
+        assertEquals("{\"images\":[]}", new String(contents.get("selection.json"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testTar() throws Exception {
+        try (ArchiveExportTransport transport = createTransport(ArchiveExportTransport.FORMAT_TAR)) {
+            writeEntries(transport);
+            transport.finish();
+        }
+
+        byte[] bytes = archive.toByteArray();
+        assertEquals(0, bytes.length % 512);
+        List<String> names = new ArrayList<>();
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        int offset = 0;
+        while (bytes[offset] != 0) {
+            String name = new String(bytes, offset, 100, StandardCharsets.UTF_8).trim();
+            int size = Integer.parseInt(new String(bytes, offset + 124, 11, StandardCharsets.US_ASCII), 8);
+            assertEquals("ustar", new String(bytes, offset + 257, 5, StandardCharsets.US_ASCII));
+            byte[] content = new byte[size];
+            System.arraycopy(bytes, offset + 512, content, 0, size);
+            names.add(name.replace("\0", ""));
+            contents.put(name.replace("\0", ""), content);
+            offset += 512 + (size + 511) / 512 * 512;
+        }
+        assertEquals(offset + 1024, bytes.length);
+        assertEquals(ENTRY_NAMES, names);
+        assertArrayEquals(Files.readAllBytes(tif), contents.get("00000001.tif"));
+        assertArrayEquals(Files.readAllBytes(jpg), contents.get("00000002.jpg"));
+        assertEquals("<mets/>", new String(contents.get("mets.xml"), StandardCharsets.UTF_8));
+        assertEquals("{\"images\":[]}", new String(contents.get("selection.json"), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenEntry() throws Exception {
+        try (ArchiveExportTransport transport = createTransport(ArchiveExportTransport.FORMAT_ZIP)) {
+            transport.writeFile(targetFolder.resolve("mets.xml"));
+            transport.exportFile(tif, targetFolder.resolve("00000001.tif"));
+        }
+    }
+
+    @Test
+    public void testUnfinishedArchiveIsDeleted() throws Exception {
+        ExportTransport target = EasyMock.createMock(ExportTransport.class);
+        EasyMock.expect(target.writeFile(targetFolder.resolve("archive.zip"))).andReturn(archive);
+        target.deleteFile(targetFolder.resolve("archive.zip"));
+        target.close();
+        EasyMock.replay(target);
+
+        try (ArchiveExportTransport transport = new ArchiveExportTransport(storageProvider, target, targetFolder.resolve("archive.zip"),
+                ArchiveExportTransport.FORMAT_ZIP, 6, true)) {
+            transport.exportFile(tif, targetFolder.resolve("00000001.tif"));
+        }
+        EasyMock.verify(target);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() {
+        createTransport("rar");
+    }
+
+    private ArchiveExportTransport createTransport(String format) {
+        ExportTransport target = EasyMock.niceMock(ExportTransport.class);
+        try {
+            EasyMock.expect(target.writeFile(EasyMock.anyObject())).andReturn(archive).once();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        EasyMock.replay(target);
+        return new ArchiveExportTransport(storageProvider, target, targetFolder.resolve("archive." + format), format, 6, true);
+    }
+
+    private void writeEntries(ArchiveExportTransport transport) throws IOException {
+        transport.exportFile(tif, targetFolder.resolve("00000001.tif"));
+        transport.exportFile(jpg, targetFolder.resolve("00000002.jpg"));
+        try (OutputStream out = transport.writeFile(targetFolder.resolve("mets.xml"))) {
+            out.write("<mets/>".getBytes(StandardCharsets.UTF_8));
+        }
+        // like the selection file of the plugin, the entry is closed by the writer and again by try-with-resources
+        try (OutputStream out = transport.writeFile(targetFolder.resolve("selection.json"));
+                JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginObject().name("images").beginArray().endArray().endObject();
+        }
+        // the archive is written from scratch, hence no entry counts as present
+        assertEquals(-1, transport.getFileSize(targetFolder.resolve("00000001.tif")));
+    }
+}
@@ -0,0 +1,84 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExportCheckpointTest {
+
+    private static final String TARGET = "host:/export/4711";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve(ExportCheckpoint.FILE_NAME);
+    }
+
+    @Test
+    public void testContinueSameTarget() throws Exception {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            checkpoint.add("00000001.tif", 1000);
+            checkpoint.add("00000002.tif", 2000);
+        }
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            assertEquals(Long.valueOf(1000), checkpoint.getCompletedSize("00000001.tif"));
+            assertEquals(Long.valueOf(2000), checkpoint.getCompletedSize("00000002.tif"));
+            assertNull(checkpoint.getCompletedSize("00000003.tif"));
+            checkpoint.add("00000003.tif", 3000);
+        }
+        // the continued journal is appended to, not rewritten
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            assertEquals(Long.valueOf(1000), checkpoint.getCompletedSize("00000001.tif"));
+            assertEquals(Long.valueOf(3000), checkpoint.getCompletedSize("00000003.tif"));
+        }
+    }
+
+    @Test
+    public void testOtherTargetIsDiscarded() throws Exception {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            checkpoint.add("00000001.tif", 1000);
+        }
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, "host:/export/other")) {
+            assertNull(checkpoint.getCompletedSize("00000001.tif"));
+        }
+        // the journal now belongs to the other target
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            assertNull(checkpoint.getCompletedSize("00000001.tif"));
+        }
+    }
+
+    @Test
+    public void testCutOffLineIsIgnored() throws Exception {
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            checkpoint.add("00000001.tif", 1000);
+        }
+        // a crash while writing a line leaves it incomplete
+        Files.write(file, "20".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET)) {
+            assertEquals(Long.valueOf(1000), checkpoint.getCompletedSize("00000001.tif"));
+            assertNull(checkpoint.getCompletedSize("20"));
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        ExportCheckpoint checkpoint = ExportCheckpoint.open(file, TARGET);
+        checkpoint.add("00000001.tif", 1000);
+        checkpoint.delete();
+        assertFalse(Files.exists(file));
+    }
+}
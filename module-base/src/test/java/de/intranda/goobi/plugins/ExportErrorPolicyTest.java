@@ -0,0 +1,88 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ExportErrorPolicyTest {
+
+    @Test
+    public void testDelayIsDoubled() {
+        ExportErrorPolicy policy = new ExportErrorPolicy(5, 1000, false);
+        assertEquals(1000, policy.getDelay(0));
+        assertEquals(2000, policy.getDelay(1));
+        assertEquals(16000, policy.getDelay(4));
+    }
+
+    @Test
+    public void testDelayIsCapped() {
+        ExportErrorPolicy policy = new ExportErrorPolicy(100, 1000, false);
+        assertEquals(ExportErrorPolicy.MAX_RETRY_DELAY, policy.getDelay(6));
+        assertEquals(ExportErrorPolicy.MAX_RETRY_DELAY, policy.getDelay(99));
+        assertEquals(ExportErrorPolicy.MAX_RETRY_DELAY, policy.getDelay(Integer.MAX_VALUE));
+        assertEquals(ExportErrorPolicy.MAX_RETRY_DELAY, new ExportErrorPolicy(1, Long.MAX_VALUE / 2, false).getDelay(1));
+        assertEquals(0, new ExportErrorPolicy(1, 0, false).getDelay(30));
+    }
+
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> delays = new ArrayList<>();
+        new ExportErrorPolicy(3, 1, false).run(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IOException("attempt " + calls.get());
+            }
+        }, (attempt, delay, e) -> delays.add(delay));
+        assertEquals(3, calls.get());
+        assertEquals(Arrays.asList(1L, 2L), delays);
+    }
+
+    @Test
+    public void testLastErrorIsThrown() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ExportErrorPolicy policy = new ExportErrorPolicy(2, 1, false);
+        try {
+            policy.run(() -> {
+                throw new IOException("attempt " + calls.incrementAndGet());
+            }, (attempt, delay, e) -> {
+            });
+            fail("the attempt never succeeds");
+        } catch (IOException e) {
+            assertEquals("attempt 3", e.getMessage());
+        }
+        assertEquals(policy.getAttempts(), calls.get());
+    }
+
+    @Test
+    public void testNoRetries() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            new ExportErrorPolicy(-1, 1000, false).run(() -> {
+                calls.incrementAndGet();
+                throw new IOException("failed");
+            }, (attempt, delay, e) -> fail("no retry is configured"));
+            fail("the attempt never succeeds");
+        } catch (IOException e) {
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void testContinueOnError() {
+        ExportErrorPolicy stopping = new ExportErrorPolicy(0, 0, false);
+        assertFalse(stopping.isStopped(false));
+        assertTrue(stopping.isStopped(true));
+        ExportErrorPolicy continuing = new ExportErrorPolicy(0, 0, true);
+        assertFalse(continuing.isStopped(false));
+        assertFalse(continuing.isStopped(true));
+    }
+}
@@ -0,0 +1,72 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.goobi.production.enums.LogType;
+import org.junit.Test;
+
+public class ExportJournalTest {
+
+    private final List<String> entries = new ArrayList<>();
+
+    private final ExportJournal journal = new ExportJournal(4711, "prefix: ") {
+        @Override
+        void write(LogType logType, String message) {
+            entries.add(logType + " " + message);
+        }
+    };
+
+    @Test
+    public void testMessagesAreCombined() {
+        journal.add(LogType.INFO, "a");
+        journal.add(LogType.INFO, "b");
+        assertTrue(entries.isEmpty());
+        journal.finish();
+        assertEquals(Arrays.asList("INFO a b"), entries);
+    }
+
+    @Test
+    public void testMessagesAreLimited() {
+        for (int i = 1; i <= 25; i++) {
+            journal.add(LogType.WARN, String.valueOf(i));
+        }
+        journal.flush();
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).startsWith("WARN 1 2 3 "));
+        assertTrue(entries.get(0).endsWith(" 19 20 (5 further messages can be found in the log file.)"));
+
+        // the count starts again after a flush
+        journal.add(LogType.WARN, "26");
+        journal.flush();
+        assertEquals("WARN 26", entries.get(1));
+    }
+
+    @Test
+    public void testCriticalMessageFollowsBufferedMessages() {
+        journal.add(LogType.INFO, "a");
+        journal.addCritical(LogType.ERROR, "b");
+        journal.add(LogType.INFO, "c");
+        assertEquals(Arrays.asList("INFO a", "ERROR b"), entries);
+        journal.finish();
+        assertEquals(Arrays.asList("INFO a", "ERROR b", "INFO c"), entries);
+    }
+
+    @Test
+    public void testSummaryIsOneEntry() {
+        journal.add(LogType.INFO, "a");
+        journal.addSummary(LogType.INFO, "metrics");
+        journal.addSummary(LogType.ERROR, "failed");
+        journal.addSummary(LogType.INFO, "job");
+        journal.finish();
+        assertEquals(Arrays.asList("INFO a", "ERROR metrics failed job"), entries);
+
+        // nothing is left to write
+        journal.finish();
+        assertEquals(2, entries.size());
+    }
+}
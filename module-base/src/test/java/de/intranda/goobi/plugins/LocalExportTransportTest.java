@@ -0,0 +1,69 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.sub.goobi.helper.StorageProviderInterface;
+
+public class LocalExportTransportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StorageProviderInterface storageProvider;
+    private Path source;
+    private Path targetFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        source = folder.newFile("00000001.tif").toPath();
+        Files.write(source, "tif content".getBytes(StandardCharsets.UTF_8));
+        targetFolder = folder.newFolder("target").toPath();
+
+        storageProvider = EasyMock.niceMock(StorageProviderInterface.class);
+        EasyMock.expect(storageProvider.isFileExists(EasyMock.anyObject())).andAnswer(() -> Files.exists(EasyMock.getCurrentArgument(0))).anyTimes();
+        EasyMock.expect(storageProvider.deleteFile(EasyMock.anyObject()))
+                .andAnswer(() -> Files.deleteIfExists(EasyMock.getCurrentArgument(0)))
+                .anyTimes();
+        storageProvider.copyFile(EasyMock.anyObject(), EasyMock.anyObject());
+        EasyMock.expectLastCall().andAnswer(() -> {
+            Files.copy((Path) EasyMock.getCurrentArgument(0), (Path) EasyMock.getCurrentArgument(1));
+            return null;
+        }).anyTimes();
+        EasyMock.replay(storageProvider);
+    }
+
+    @Test
+    public void testMissingSourceKeepsLinkStrategy() throws Exception {
+        LocalExportTransport transport = new LocalExportTransport(storageProvider, LocalExportTransport.MODE_HARDLINK);
+        try {
+            transport.exportFile(folder.getRoot().toPath().resolve("missing.tif"), targetFolder.resolve("missing.tif"));
+            fail("a missing source must not be skipped");
+        } catch (IOException e) {
+            // expected, and the hard link must still be used for the next file
+        }
+        transport.exportFile(source, targetFolder.resolve("00000001.tif"));
+        assertTrue(Files.isSameFile(source, targetFolder.resolve("00000001.tif")));
+    }
+
+    @Test
+    public void testExistingTargetIsReplaced() throws Exception {
+        Path target = targetFolder.resolve("00000001.tif");
+        Files.write(target, "old content".getBytes(StandardCharsets.UTF_8));
+        LocalExportTransport transport = new LocalExportTransport(storageProvider, LocalExportTransport.MODE_AUTO);
+        transport.exportFile(source, target);
+        assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+    }
+}
@@ -0,0 +1,229 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ugh.dl.ContentFile;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.FileSet;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+import ugh.dl.Reference;
+
+public class MetsDocumentFilterTest {
+
+    private static final int NUMBER_OF_PAGES = 12;
+
+    private String resourcesFolder;
+    private Prefs prefs;
+
+    @Before
+    public void setUp() throws Exception {
+        resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+    }
+
+    @Test
+    public void testAllImagesSelected() throws Exception {
+        assertSameResult(getSelection(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+    }
+
+    @Test
+    public void testNoImageSelected() throws Exception {
+        assertSameResult(getSelection());
+    }
+
+    @Test
+    public void testSomeImagesSelected() throws Exception {
+        assertSameResult(getSelection(2, 3, 7, 12));
+    }
+
+    @Test
+    public void testWholeChapterRemoved() throws Exception {
+        assertSameResult(getSelection(1, 2, 3, 4, 9, 10, 11, 12));
+    }
+
+    @Test
+    public void testSingleImageSelected() throws Exception {
+        assertSameResult(getSelection(1));
+    }
+
+    @Test
+    public void testSelectionOrder() throws Exception {
+        DigitalDocument dd = createDocument(prefs);
+        Map<String, Integer> selectedImagesNamesOrderMap = getSelection(5, 6);
+        MetsDocumentFilter.filter(prefs, dd, selectedImagesNamesOrderMap);
+
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+        List<String> orders = new ArrayList<>();
+        for (DocStruct page : dd.getPhysicalDocStruct().getAllChildren()) {
+            orders.add(page.getImageName() + "=" + page.getAllMetadataByType(typePhysPage).get(0).getValue());
+        }
+        assertEquals(Arrays.asList("00000005.jpg=1", "00000006.jpg=2"), orders);
+        assertEquals(2, dd.getFileSet().getAllFiles().size());
+        assertEquals(0, dd.getLogicalDocStruct().getAllChildren().get(0).getAllToReferences().size());
+    }
+
+    private void assertSameResult(Map<String, Integer> selectedImagesNamesOrderMap) throws Exception {
+        DigitalDocument expected = createDocument(prefs);
+        legacyFilter(expected, selectedImagesNamesOrderMap);
+
+        DigitalDocument actual = createDocument(prefs);
+        MetsDocumentFilter.filter(prefs, actual, selectedImagesNamesOrderMap);
+
+        assertEquals(describe(prefs, expected), describe(prefs, actual));
+    }
+
+    /**
+     * select images by their page numbers, the orders are assigned in the given sequence
+     */
+    static Map<String, Integer> getSelection(int... pages) {
+        Map<String, Integer> selectedImagesNamesOrderMap = new HashMap<>();
+        for (int page : pages) {
+            selectedImagesNamesOrderMap.put(getImageName(page), selectedImagesNamesOrderMap.size() + 1);
+        }
+        return selectedImagesNamesOrderMap;
+    }
+
+    private static String getImageName(int page) {
+        return String.format("%08d.jpg", page);
+    }
+
+    /**
+     * create a monograph with three chapters of four pages each, the monograph itself links to all pages
+     */
+    static DigitalDocument createDocument(Prefs prefs) throws Exception {
+        DigitalDocument dd = new DigitalDocument();
+        DocStruct logical = dd.createDocStruct(prefs.getDocStrctTypeByName("Monograph"));
+        DocStruct physical = dd.createDocStruct(prefs.getDocStrctTypeByName("BoundBook"));
+        dd.setLogicalDocStruct(logical);
+        dd.setPhysicalDocStruct(physical);
+        FileSet fileSet = new FileSet();
+        dd.setFileSet(fileSet);
+
+        List<DocStruct> chapters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DocStruct chapter = dd.createDocStruct(prefs.getDocStrctTypeByName("Chapter"));
+            logical.addChild(chapter);
+            chapters.add(chapter);
+        }
+
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+        for (int i = 1; i <= NUMBER_OF_PAGES; i++) {
+            DocStruct page = dd.createDocStruct(prefs.getDocStrctTypeByName("page"));
+            Metadata physPage = new Metadata(typePhysPage);
+            physPage.setValue(String.valueOf(i));
+            page.addMetadata(physPage);
+            physical.addChild(page);
+
+            ContentFile file = new ContentFile();
+            file.setLocation("/opt/digiverso/goobi/metadata/1/images/sample_media/" + getImageName(i));
+            fileSet.addFile(file);
+            page.addContentFile(file);
+
+            logical.addReferenceTo(page, "logical_physical");
+            chapters.get((i - 1) / 4).addReferenceTo(page, "logical_physical");
+        }
+        return dd;
+    }
+
+    /**
+     * describe everything that the filter may change
+     */
+    static String describe(Prefs prefs, DigitalDocument dd) {
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+        StringBuilder sb = new StringBuilder();
+
+        List<DocStruct> pages = dd.getPhysicalDocStruct().getAllChildren();
+        if (pages != null) {
+            for (DocStruct page : pages) {
+                sb.append("page ").append(page.getImageName()).append(' ');
+                sb.append(page.getAllMetadataByType(typePhysPage).get(0).getValue()).append(" from");
+                for (Reference reference : page.getAllFromReferences()) {
+                    sb.append(' ').append(reference.getSource().getType().getName());
+                }
+                sb.append('\n');
+            }
+        }
+
+        List<DocStruct> logicals = new ArrayList<>();
+        logicals.add(dd.getLogicalDocStruct());
+        logicals.addAll(dd.getLogicalDocStruct().getAllChildren());
+        for (DocStruct logical : logicals) {
+            sb.append(logical.getType().getName()).append(" to");
+            for (Reference reference : logical.getAllToReferences()) {
+                sb.append(' ').append(reference.getTarget().getImageName());
+            }
+            sb.append('\n');
+        }
+
+        for (ContentFile file : dd.getFileSet().getAllFiles()) {
+            sb.append("file ").append(file.getLocation()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * the filter as it was implemented before, one page and one reference at a time
+     */
+    private void legacyFilter(DigitalDocument dd, Map<String, Integer> selectedImagesNamesOrderMap) {
+        DocStruct physical = dd.getPhysicalDocStruct();
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+
+        List<DocStruct> children = new ArrayList<>(physical.getAllChildren());
+        for (DocStruct child : children) {
+            String imageName = child.getImageName();
+
+            List<Reference> fromReferences = new ArrayList<>(child.getAllFromReferences());
+            for (Reference reference : fromReferences) {
+                DocStruct source = reference.getSource();
+                DocStruct target = reference.getTarget();
+                String targetImageName = target.getImageName();
+
+                if (!selectedImagesNamesOrderMap.containsKey(targetImageName)) {
+                    source.removeReferenceTo(target);
+                    target.removeReferenceFrom(source);
+                }
+            }
+
+            if (selectedImagesNamesOrderMap.containsKey(imageName)) {
+                Metadata physPage = child.getAllMetadataByType(typePhysPage).get(0);
+                physPage.setValue(selectedImagesNamesOrderMap.get(imageName).toString());
+            } else {
+                physical.removeChild(child);
+            }
+        }
+
+        FileSet fileSet = dd.getFileSet();
+        List<ContentFile> contentFiles = new ArrayList<>(fileSet.getAllFiles());
+        for (ContentFile file : contentFiles) {
+            boolean shouldRemove = false;
+            for (DocStruct ds : file.getReferencedDocStructs()) {
+                if (!selectedImagesNamesOrderMap.containsKey(ds.getImageName())) {
+                    shouldRemove = true;
+                }
+            }
+            if (shouldRemove) {
+                fileSet.removeFile(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ugh.dl.DigitalDocument;
+import ugh.dl.Prefs;
+import ugh.fileformats.mets.MetsMods;
+
+public class MetsStreamFilterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Prefs prefs;
+    private Path metaFile;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+
+        // the sample meta.xml, where the monograph and every chapter link to their pages
+        metaFile = folder.getRoot().toPath().resolve("meta.xml");
+        MetsMods mets = new MetsMods(prefs);
+        mets.setDigitalDocument(MetsDocumentFilterTest.createDocument(prefs));
+        mets.write(metaFile.toString());
+    }
+
+    @Test
+    public void testAllImagesSelected() throws Exception {
+        assertSameResult(MetsDocumentFilterTest.getSelection(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+    }
+
+    @Test
+    public void testNoImageSelected() throws Exception {
+        assertSameResult(MetsDocumentFilterTest.getSelection());
+    }
+
+    @Test
+    public void testSomeImagesSelected() throws Exception {
+        // the unselected pages are linked from the monograph and from their chapters
+        assertSameResult(MetsDocumentFilterTest.getSelection(2, 3, 7, 12));
+    }
+
+    @Test
+    public void testWholeChapterRemoved() throws Exception {
+        assertSameResult(MetsDocumentFilterTest.getSelection(1, 2, 3, 4, 9, 10, 11, 12));
+    }
+
+    @Test
+    public void testSelectionOrder() throws Exception {
+        assertSameResult(MetsDocumentFilterTest.getSelection(12, 5, 6, 1));
+    }
+
+    /**
+     * filter the sample meta.xml with UGH and with StAX, and compare both results after reading them again
+     */
+    private void assertSameResult(Map<String, Integer> selectedImagesNamesOrderMap) throws Exception {
+        MetsMods ughMets = new MetsMods(prefs);
+        ughMets.read(metaFile.toString());
+        MetsDocumentFilter.filter(prefs, ughMets.getDigitalDocument(), selectedImagesNamesOrderMap);
+        Path ughFile = folder.getRoot().toPath().resolve("ugh.xml");
+        ughMets.write(ughFile.toString());
+
+        Path staxFile = folder.getRoot().toPath().resolve("stax.xml");
+        try (InputStream in = Files.newInputStream(metaFile);
+                OutputStream out = Files.newOutputStream(staxFile)) {
+            MetsStreamFilter.filter(in, out, selectedImagesNamesOrderMap);
+        }
+
+        assertEquals(describe(ughFile), describe(staxFile));
+    }
+
+    private String describe(Path file) throws Exception {
+        MetsMods mets = new MetsMods(prefs);
+        mets.read(file.toString());
+        DigitalDocument dd = mets.getDigitalDocument();
+        return MetsDocumentFilterTest.describe(prefs, dd);
+    }
+}
@@ -0,0 +1,54 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SelectedImagesPropertyParserTest {
+
+    @Test
+    public void testOrderIsKept() throws Exception {
+        Map<String, Integer> map = SelectedImagesPropertyParser.parse("{\"00000003.jpg\":1,\"00000001.jpg\":2, \"00000002.jpg\" : 3}");
+        assertEquals(Arrays.asList("00000003.jpg", "00000001.jpg", "00000002.jpg"), new ArrayList<>(map.keySet()));
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(map.values()));
+    }
+
+    @Test
+    public void testSpecialCharacters() throws Exception {
+        Map<String, Integer> map = SelectedImagesPropertyParser.parse("{\"a,b.jpg\":1,\"c:d.jpg\":2,\"e\\\"f.jpg\":3}");
+        assertEquals(Arrays.asList("a,b.jpg", "c:d.jpg", "e\"f.jpg"), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    public void testEmptySelection() throws Exception {
+        assertTrue(SelectedImagesPropertyParser.parse("{}").isEmpty());
+        assertTrue(SelectedImagesPropertyParser.parse("").isEmpty());
+        assertTrue(SelectedImagesPropertyParser.parse(null).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoObject() throws Exception {
+        SelectedImagesPropertyParser.parse("[\"00000001.jpg\"]");
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidOrder() throws Exception {
+        SelectedImagesPropertyParser.parse("{\"00000001.jpg\":1.5}");
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedValue() throws Exception {
+        SelectedImagesPropertyParser.parse("{\"00000001.jpg\":1,\"00000002.jpg\"");
+    }
+
+    @Test(expected = IOException.class)
+    public void testTrailingContent() throws Exception {
+        SelectedImagesPropertyParser.parse("{\"00000001.jpg\":1}}");
+    }
+}
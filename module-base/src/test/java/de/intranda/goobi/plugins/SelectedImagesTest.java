@@ -0,0 +1,82 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class SelectedImagesTest {
+
+    @Test
+    public void testDuplicatesAreIgnored() {
+        SelectedImages selectedImages = new SelectedImages();
+        selectedImages.addImage(createProperties("1", "a"));
+        selectedImages.addImage(createProperties("2", "b"));
+        selectedImages.addImage(createProperties("1", "a"));
+        // same id, but different properties
+        selectedImages.addImage(createProperties("1", "c"));
+        selectedImages.addImage(null);
+        assertEquals(Arrays.asList(createProperties("1", "a"), createProperties("2", "b"), createProperties("1", "c")),
+                selectedImages.getImages());
+    }
+
+    @Test
+    public void testSlots() {
+        SelectedImages selectedImages = new SelectedImages(3);
+        selectedImages.addImage(createProperties("2", "b"), 1);
+        selectedImages.addImage(createProperties("2", "b"), 0);
+        assertNull(selectedImages.getImages().get(0));
+        assertEquals(createProperties("2", "b"), selectedImages.getImages().get(1));
+
+        // a replaced image may be added again afterwards
+        selectedImages.addImage(createProperties("3", "c"), 1);
+        selectedImages.addImage(createProperties("2", "b"), 2);
+        assertEquals(Arrays.asList(null, createProperties("3", "c"), createProperties("2", "b")), selectedImages.getImages());
+    }
+
+    @Test
+    public void testSetImages() {
+        SelectedImages selectedImages = new SelectedImages();
+        selectedImages.addImage(createProperties("1", "a"));
+        selectedImages.setImages(new ArrayList<>(Arrays.asList(createProperties("2", "b"))));
+        selectedImages.addImage(createProperties("1", "a"));
+        selectedImages.addImage(createProperties("2", "b"));
+        assertEquals(Arrays.asList(createProperties("2", "b"), createProperties("1", "a")), selectedImages.getImages());
+    }
+
+    @Test
+    public void testIndexIsHidden() {
+        SelectedImages selectedImages = new SelectedImages();
+        SelectedImageProperties properties = createProperties("1", "a");
+        selectedImages.addImage(properties);
+        SelectedImages other = new SelectedImages();
+        other.setImages(new ArrayList<>(Arrays.asList(properties)));
+        assertEquals(other, selectedImages);
+        assertEquals(other.hashCode(), selectedImages.hashCode());
+        assertFalse(selectedImages.toString().contains("imagesById"));
+        assertSame(properties, selectedImages.getImages().get(0));
+    }
+
+    @Test
+    public void testDeserializedImagesAreIndexed() {
+        SelectedImages selectedImages = new Gson().fromJson("{\"images\":[{\"id\":\"1\",\"title\":\"a\"}],\"herisId\":4711}",
+                SelectedImages.class);
+        selectedImages.addImage(createProperties("1", "a"));
+        selectedImages.addImage(createProperties("2", "b"));
+        assertEquals(Arrays.asList(createProperties("1", "a"), createProperties("2", "b")), selectedImages.getImages());
+    }
+
+    private static SelectedImageProperties createProperties(String id, String title) {
+        SelectedImageProperties properties = new SelectedImageProperties();
+        properties.setId(id);
+        properties.setTitle(title);
+        return properties;
+    }
+}
@@ -0,0 +1,76 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class SelectedImagesTypeAdapterTest {
+
+    @Test
+    public void testLegacyFormat() throws Exception {
+        SelectedImages selectedImages = createSelectedImages(3);
+        String expected = new GsonBuilder().registerTypeAdapter(SelectedImages.class, new SelectedImagesSerializer()).create().toJson(selectedImages);
+        assertEquals(expected, SelectedImagesTypeAdapter.toJson(selectedImages, true));
+    }
+
+    @Test
+    public void testArrayFormat() throws Exception {
+        SelectedImages selectedImages = createSelectedImages(3);
+        StringWriter writer = new StringWriter();
+        SelectedImagesTypeAdapter.write(selectedImages, writer, false);
+
+        JsonObject json = JsonParser.parseString(writer.toString()).getAsJsonObject();
+        assertEquals(4711, json.get("HERIS-ID").getAsInt());
+        JsonArray images = json.getAsJsonArray("images");
+        assertEquals(3, images.size());
+
+        // every image must look exactly like one image of the legacy format
+        JsonArray legacyImages = JsonParser.parseString(SelectedImagesSerializer.toLegacyString(selectedImages.getImages())).getAsJsonArray();
+        assertEquals(legacyImages, images);
+        assertTrue(images.get(0).getAsJsonObject().get("migrated information").isJsonNull());
+    }
+
+    @Test
+    public void testNoImageSelected() throws Exception {
+        SelectedImages selectedImages = createSelectedImages(0);
+        assertEquals("{\"images\":[],\"HERIS-ID\":4711}", SelectedImagesTypeAdapter.toJson(selectedImages, false));
+        assertEquals("{\"images\":\"[\\n]\",\"HERIS-ID\":4711}", SelectedImagesTypeAdapter.toJson(selectedImages, true));
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        SelectedImages selectedImages = createSelectedImages(3);
+        SelectedImagesTypeAdapter adapter = new SelectedImagesTypeAdapter(false);
+        assertEquals(selectedImages, adapter.fromJson(SelectedImagesTypeAdapter.toJson(selectedImages, false)));
+        // the legacy format is read as well, regardless of the format the adapter writes
+        assertEquals(selectedImages, adapter.fromJson(SelectedImagesTypeAdapter.toJson(selectedImages, true)));
+        assertEquals(createSelectedImages(0), adapter.fromJson("{\"images\":[],\"HERIS-ID\":4711,\"unknown\":{}}"));
+    }
+
+    private static SelectedImages createSelectedImages(int size) {
+        SelectedImages selectedImages = new SelectedImages();
+        selectedImages.setHerisId(4711);
+        for (int i = 1; i <= size; i++) {
+            SelectedImageProperties properties = new SelectedImageProperties();
+            properties.setId(String.valueOf(i));
+            properties.setTitle("title \"" + i + "\"");
+            properties.setAltText("alt text " + i);
+            properties.setSymbol(i == 1);
+            properties.setMediaType("image/tiff");
+            properties.setCreationDate("2020-01-0" + i);
+            properties.setCopyrightBDA(i % 2 == 0);
+            properties.setFileInformation(String.format("%08d.tif", i));
+            properties.setPublishable(true);
+            selectedImages.addImage(properties);
+        }
+        return selectedImages;
+    }
+}
@@ -0,0 +1,206 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ugh.dl.ContentFile;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.FileSet;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+
+/**
+ * Synthetic input data for the benchmarks. All random choices use a fixed seed, so that every run measures exactly the same data.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42;
+
+    // number of pages that belong to one chapter of the synthetic documents
+    private static final int PAGES_PER_CHAPTER = 20;
+
+    private BenchmarkData() {
+    }
+
+    static String getImageName(int page) {
+        return String.format("%08d.tif", page);
+    }
+
+    /**
+     * select a share of all images in random order
+     * 
+     * @param images number of all images
+     * @param percent share of the selected images
+     * @return map between names of selected images and their orders among all selected
+     */
+    static Map<String, Integer> createSelection(int images, int percent) {
+        List<Integer> pages = new ArrayList<>();
+        for (int i = 1; i <= images; i++) {
+            pages.add(i);
+        }
+        Collections.shuffle(pages, new Random(SEED));
+
+        int selected = images * percent / 100;
+        Map<String, Integer> selection = new LinkedHashMap<>();
+        for (int page : pages.subList(0, selected)) {
+            selection.put(getImageName(page), selection.size() + 1);
+        }
+        return selection;
+    }
+
+    /**
+     * create the value of the process property for a selection of all images
+     * 
+     * @param images number of selected images
+     * @return JSON object that maps every image name to its order
+     */
+    static String createPropertyValue(int images) {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<String, Integer> entry : createSelection(images, 100).entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * create properties of selected images with values of realistic length
+     * 
+     * @param images number of selected images
+     * @return SelectedImages object
+     */
+    static SelectedImages createSelectedImages(int images) {
+        Random random = new Random(SEED);
+        SelectedImages selectedImages = new SelectedImages();
+        selectedImages.setHerisId(12345);
+        for (int i = 1; i <= images; i++) {
+            SelectedImageProperties properties = new SelectedImageProperties();
+            properties.setId(String.valueOf(i));
+            properties.setTitle("Ansicht " + i + " von Südwesten");
+            properties.setAltText("Fassade mit \"Portal\" und Fenstern, Aufnahme " + i);
+            properties.setSymbol(i == 1);
+            properties.setMediaType("Foto");
+            properties.setCreationDate("19" + (10 + random.nextInt(90)) + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+            properties.setCopyrightBDA(random.nextBoolean());
+            properties.setFileInformation(getImageName(i) + ", " + (1 + random.nextInt(200)) + " MB");
+            properties.setPublishable(random.nextBoolean());
+            properties.setMigratedInformation(null);
+            selectedImages.addImage(properties);
+        }
+        return selectedImages;
+    }
+
+    /**
+     * load the ruleset of the tests, which is added to the resources of the benchmarks
+     * 
+     * @return Prefs object
+     * @throws Exception if the ruleset cannot be read
+     */
+    static Prefs loadPrefs() throws Exception {
+        Path ruleset = Files.createTempFile("ruleset_", ".xml");
+        try (InputStream in = BenchmarkData.class.getResourceAsStream("/ruleset.xml")) {
+            Files.copy(in, ruleset, StandardCopyOption.REPLACE_EXISTING);
+            Prefs prefs = new Prefs();
+            prefs.loadPrefs(ruleset.toString());
+            return prefs;
+        } finally {
+            Files.delete(ruleset);
+        }
+    }
+
+    /**
+     * create a monograph whose chapters link to consecutive pages, the monograph itself links to all pages
+     * 
+     * @param prefs Prefs object
+     * @param pages number of pages
+     * @return DigitalDocument object
+     * @throws Exception if the document cannot be created
+     */
+    static DigitalDocument createDocument(Prefs prefs, int pages) throws Exception {
+        DigitalDocument dd = new DigitalDocument();
+        DocStruct logical = dd.createDocStruct(prefs.getDocStrctTypeByName("Monograph"));
+        DocStruct physical = dd.createDocStruct(prefs.getDocStrctTypeByName("BoundBook"));
+        dd.setLogicalDocStruct(logical);
+        dd.setPhysicalDocStruct(physical);
+        FileSet fileSet = new FileSet();
+        dd.setFileSet(fileSet);
+
+        MetadataType typePhysPage = prefs.getMetadataTypeByName("physPageNumber");
+        DocStruct chapter = null;
+        for (int i = 1; i <= pages; i++) {
+            if ((i - 1) % PAGES_PER_CHAPTER == 0) {
+                chapter = dd.createDocStruct(prefs.getDocStrctTypeByName("Chapter"));
+                logical.addChild(chapter);
+            }
+
+            DocStruct page = dd.createDocStruct(prefs.getDocStrctTypeByName("page"));
+            Metadata physPage = new Metadata(typePhysPage);
+            physPage.setValue(String.valueOf(i));
+            page.addMetadata(physPage);
+            physical.addChild(page);
+
+            ContentFile file = new ContentFile();
+            file.setLocation("/opt/digiverso/goobi/metadata/1/images/sample_media/" + getImageName(i));
+            fileSet.addFile(file);
+            page.addContentFile(file);
+
+            logical.addReferenceTo(page, "logical_physical");
+            chapter.addReferenceTo(page, "logical_physical");
+        }
+        return dd;
+    }
+
+    /**
+     * create a file filled with random bytes
+     * 
+     * @param file path to the file
+     * @param size size in bytes
+     * @throws IOException if the file cannot be written
+     */
+    static void createFile(Path file, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(SEED).nextBytes(content);
+        Files.write(file, content);
+    }
+
+    /**
+     * delete a folder with everything in it
+     * 
+     * @param folder path to the folder
+     * @throws IOException if anything cannot be deleted
+     */
+    static void deleteFolder(Path folder) throws IOException {
+        if (folder == null || !Files.exists(folder)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
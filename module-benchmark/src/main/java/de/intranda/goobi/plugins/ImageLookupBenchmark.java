@@ -0,0 +1,65 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching of the selected image names against the files of the source folder, by listing the folder or by checking every selected name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ImageLookupBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int files;
+
+    @Param({ "1", "10", "100" })
+    private int selectedPercent;
+
+    private Path folder;
+    private Map<String, Integer> selection;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("lookup_");
+        for (int i = 1; i <= files; i++) {
+            Files.createFile(folder.resolve(BenchmarkData.getImageName(i)));
+        }
+        selection = BenchmarkData.createSelection(files, selectedPercent);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public Map<Path, Integer> listing() {
+        return SelectedImagesExportPlugin.listSelectedImages(folder, selection);
+    }
+
+    @Benchmark
+    public Map<Path, Integer> direct() {
+        return SelectedImagesExportPlugin.resolveSelectedImages(folder, selection);
+    }
+}
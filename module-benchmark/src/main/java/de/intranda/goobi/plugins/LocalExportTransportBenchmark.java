@@ -0,0 +1,69 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.sub.goobi.helper.StorageProvider;
+
+/**
+ * Export of one image into a local folder with the different local export modes.
+ *
+ * Source and target are placed in the same temporary folder, so that links are possible. Modes that are not supported by the file system fall
+ * back to copying, just like during a real export. The temporary folder can be moved with -Djava.io.tmpdir.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LocalExportTransportBenchmark {
+
+    @Param({ LocalExportTransport.MODE_COPY, LocalExportTransport.MODE_HARDLINK, LocalExportTransport.MODE_REFLINK,
+            LocalExportTransport.MODE_SYMLINK })
+    private String mode;
+
+    @Param({ "1048576", "52428800" })
+    private int fileSize;
+
+    private Path folder;
+    private Path source;
+    private Path target;
+    private LocalExportTransport transport;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("transport_");
+        source = folder.resolve("source.tif");
+        target = folder.resolve("target.tif");
+        BenchmarkData.createFile(source, fileSize);
+        transport = new LocalExportTransport(StorageProvider.getInstance(), mode);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transport.close();
+        BenchmarkData.deleteFolder(folder);
+    }
+
+    @Benchmark
+    public Path exportFile() throws IOException {
+        transport.exportFile(source, target);
+        return target;
+    }
+}
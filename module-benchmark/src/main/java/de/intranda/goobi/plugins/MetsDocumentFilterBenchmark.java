@@ -0,0 +1,62 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ugh.dl.DigitalDocument;
+import ugh.dl.Prefs;
+
+/**
+ * Pruning of a large METS document down to the selected pages.
+ *
+ * The filter changes the document, hence every invocation gets a new one. Since the creation of the document is not measured, single shots
+ * are measured instead of a throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(2)
+public class MetsDocumentFilterBenchmark {
+
+    @Param({ "1000", "10000" })
+    private int pages;
+
+    @Param({ "1", "50" })
+    private int selectedPercent;
+
+    private Prefs prefs;
+    private Map<String, Integer> selection;
+    private DigitalDocument dd;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        prefs = BenchmarkData.loadPrefs();
+        selection = BenchmarkData.createSelection(pages, selectedPercent);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        dd = BenchmarkData.createDocument(prefs, pages);
+    }
+
+    @Benchmark
+    public DigitalDocument filter() {
+        MetsDocumentFilter.filter(prefs, dd, selection);
+        return dd;
+    }
+}
@@ -0,0 +1,44 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the process property that holds the selected images.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SelectedImagesPropertyParserBenchmark {
+
+    @Param({ "100", "10000" })
+    private int images;
+
+    private String propertyValue;
+
+    @Setup
+    public void setUp() {
+        propertyValue = BenchmarkData.createPropertyValue(images);
+    }
+
+    @Benchmark
+    public Map<String, Integer> parse() throws IOException {
+        return SelectedImagesPropertyParser.parse(propertyValue);
+    }
+}
@@ -0,0 +1,63 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Serialization of the properties of the selected images into JSON, with the legacy serializer and with the streaming type adapter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SelectedImagesSerializerBenchmark {
+
+    @Param({ "10", "1000" })
+    private int images;
+
+    private Gson gson;
+    private SelectedImages selectedImages;
+
+    @Setup
+    public void setUp() {
+        gson = new GsonBuilder().registerTypeAdapter(SelectedImages.class, new SelectedImagesSerializer()).create();
+        selectedImages = BenchmarkData.createSelectedImages(images);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(selectedImages);
+    }
+
+    @Benchmark
+    public String streamLegacyFormat() throws IOException {
+        StringWriter writer = new StringWriter();
+        SelectedImagesTypeAdapter.write(selectedImages, writer, true);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String streamArrayFormat() throws IOException {
+        StringWriter writer = new StringWriter();
+        SelectedImagesTypeAdapter.write(selectedImages, writer, false);
+        return writer.toString();
+    }
+}